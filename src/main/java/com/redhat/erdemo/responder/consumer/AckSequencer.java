@@ -0,0 +1,39 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import io.smallrye.reactive.messaging.kafka.IncomingKafkaRecord;
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+/**
+ * Acks records of a partition in offset order, even when they are processed out of order on different lanes.
+ * Committing the offset of a record implicitly commits all previous offsets of the partition.
+ */
+class AckSequencer {
+
+    private final Map<String, CompletableFuture<Void>> tails = new HashMap<>();
+
+    CompletionStage<Void> ack(IncomingKafkaRecord<?, ?> message, CompletionStage<?> processed) {
+        return ack(message, message, processed);
+    }
+
+    // acks <code>message</code>, in the offset order of <code>record</code>
+    synchronized CompletionStage<Void> ack(IncomingKafkaRecord<?, ?> record, Message<?> message, CompletionStage<?> processed) {
+        String partition = record.getTopic() + "-" + record.getPartition();
+        CompletableFuture<Void> previous = tails.getOrDefault(partition, CompletableFuture.completedFuture(null));
+        CompletableFuture<Void> acked = previous.handle((v, t) -> null)
+                .thenCombine(processed.handle((v, t) -> null), (a, b) -> null)
+                .thenCompose(v -> message.ack());
+        tails.put(partition, acked);
+        return acked;
+    }
+
+    // completes when all acks handed out so far are done
+    synchronized CompletionStage<Void> drained() {
+        return CompletableFuture.allOf(tails.values().stream().map(t -> t.handle((v, e) -> null))
+                .toArray(CompletableFuture[]::new));
+    }
+}
@@ -0,0 +1,39 @@
+package com.redhat.erdemo.responder.consumer;
+
+/**
+ * Tracks whether the consumer is catching up on a backlog. The mode is entered when the lag goes above
+ * <code>enterLagMs</code> and left when it drops below <code>exitLagMs</code>, so it does not flip on every record
+ * around a single threshold.
+ */
+class CatchUpMode {
+
+    private final long enterLagMs;
+
+    private final long exitLagMs;
+
+    private volatile boolean active;
+
+    CatchUpMode(long enterLagMs, long exitLagMs) {
+        this.enterLagMs = enterLagMs;
+        this.exitLagMs = Math.min(exitLagMs, enterLagMs);
+    }
+
+    /**
+     * @return true when the mode changed.
+     */
+    boolean update(long lagMs) {
+        if (!active && lagMs > enterLagMs) {
+            active = true;
+            return true;
+        }
+        if (active && lagMs < exitLagMs) {
+            active = false;
+            return true;
+        }
+        return false;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+}
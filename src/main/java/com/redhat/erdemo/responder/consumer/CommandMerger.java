@@ -0,0 +1,115 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.redhat.erdemo.responder.model.Responder;
+
+/**
+ * Merges the commands for a responder which are waiting in a lane into one pending update, so they are written with
+ * a single responder update. Fields set by a later command override the same fields of earlier commands. Commands
+ * which change <code>available</code> are not merged with each other, see {@link #runs(List)}.
+ */
+class CommandMerger {
+
+    private final Map<String, PendingUpdate> pending = new HashMap<>();
+
+    /**
+     * @return the pending update of the responder the command was merged into. When the command started a new pending
+     * update, the caller schedules it and sets its processed future.
+     */
+    synchronized PendingUpdate add(UpdateResponderCommand command) {
+        String responderId = command.getResponder().getId();
+        PendingUpdate update = pending.get(responderId);
+        if (update == null) {
+            update = new PendingUpdate(command);
+            pending.put(responderId, update);
+        } else {
+            update.commands.add(command);
+        }
+        return update;
+    }
+
+    /**
+     * Removes the pending update, commands for the responder which arrive after this call start a new pending update.
+     */
+    synchronized List<UpdateResponderCommand> take(PendingUpdate update) {
+        pending.remove(update.commands.get(0).getResponder().getId(), update);
+        return new ArrayList<>(update.commands);
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Splits the commands into runs which can be merged. A run ends before a command which sets <code>available</code>
+     * to another value than an earlier command of the run, so an assignment followed by a release is written as two
+     * updates and each command gets the result it would have had without merging.
+     */
+    static List<List<UpdateResponderCommand>> runs(List<UpdateResponderCommand> commands) {
+        List<List<UpdateResponderCommand>> runs = new ArrayList<>();
+        List<UpdateResponderCommand> run = new ArrayList<>();
+        Boolean available = null;
+        for (UpdateResponderCommand command : commands) {
+            Boolean next = command.getResponder().isAvailable();
+            if (next != null && available != null && !next.equals(available)) {
+                runs.add(run);
+                run = new ArrayList<>();
+            }
+            if (next != null) {
+                available = next;
+            }
+            run.add(command);
+        }
+        if (!run.isEmpty()) {
+            runs.add(run);
+        }
+        return runs;
+    }
+
+    static Responder merge(List<UpdateResponderCommand> commands) {
+        Responder merged = commands.get(0).getResponder();
+        for (int i = 1; i < commands.size(); i++) {
+            Responder next = commands.get(i).getResponder();
+            merged = new Responder.Builder(merged.getId())
+                    .name(next.getName() != null ? next.getName() : merged.getName())
+                    .phoneNumber(next.getPhoneNumber() != null ? next.getPhoneNumber() : merged.getPhoneNumber())
+                    .latitude(next.getLatitude() != null ? next.getLatitude() : merged.getLatitude())
+                    .longitude(next.getLongitude() != null ? next.getLongitude() : merged.getLongitude())
+                    .boatCapacity(next.getBoatCapacity() != null ? next.getBoatCapacity() : merged.getBoatCapacity())
+                    .medicalKit(next.isMedicalKit() != null ? next.isMedicalKit() : merged.isMedicalKit())
+                    .available(next.isAvailable() != null ? next.isAvailable() : merged.isAvailable())
+                    .enrolled(next.isEnrolled() != null ? next.isEnrolled() : merged.isEnrolled())
+                    .person(next.isPerson() != null ? next.isPerson() : merged.isPerson())
+                    .build();
+        }
+        return merged;
+    }
+
+    static class PendingUpdate {
+
+        private final List<UpdateResponderCommand> commands = new ArrayList<>();
+
+        private CompletableFuture<Void> processed;
+
+        private PendingUpdate(UpdateResponderCommand command) {
+            commands.add(command);
+        }
+
+        boolean startedBy(UpdateResponderCommand command) {
+            return commands.get(0) == command;
+        }
+
+        CompletableFuture<Void> getProcessed() {
+            return processed;
+        }
+
+        void setProcessed(CompletableFuture<Void> processed) {
+            this.processed = processed;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.nio.charset.StandardCharsets;
+
+import io.smallrye.reactive.messaging.kafka.IncomingKafkaRecord;
+
+final class KafkaRecords {
+
+    private KafkaRecords() {}
+
+    /**
+     * @return the record payload decoded as UTF-8 for logging, or <code>null</code> when the record has no payload.
+     */
+    static String payload(IncomingKafkaRecord<String, byte[]> message) {
+        return message.getPayload() == null ? null : new String(message.getPayload(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,41 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.math.BigDecimal;
+
+import com.redhat.erdemo.responder.model.Responder;
+
+public final class LocationEvent {
+
+    private final long responderId;
+
+    private final double latitude;
+
+    private final double longitude;
+
+    public LocationEvent(long responderId, double latitude, double longitude) {
+        this.responderId = responderId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public long getResponderId() {
+        return responderId;
+    }
+
+    // NaN when not present in the event
+    public double getLatitude() {
+        return latitude;
+    }
+
+    // NaN when not present in the event
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public Responder toResponder() {
+        return new Responder.Builder(Long.toString(responderId))
+                .latitude(Double.isNaN(latitude) ? null : BigDecimal.valueOf(latitude))
+                .longitude(Double.isNaN(longitude) ? null : BigDecimal.valueOf(longitude))
+                .build();
+    }
+}
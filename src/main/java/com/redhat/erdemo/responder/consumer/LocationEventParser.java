@@ -0,0 +1,72 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Streaming parser for responder location events. Only <code>responderId</code>, <code>lat</code>,
+ * <code>lon</code> and <code>status</code> are read, everything else is skipped without being materialized.
+ * Parsing stops as soon as a status other than MOVING is seen.
+ */
+public final class LocationEventParser {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private static final String MOVING = "MOVING";
+
+    private LocationEventParser() {}
+
+    /**
+     * @return the location event, or <code>null</code> when the event has no responder id or is not MOVING.
+     */
+    public static LocationEvent parse(byte[] payload) throws IOException {
+        try (JsonParser parser = factory.createParser(payload)) {
+            return parse(parser);
+        }
+    }
+
+    private static LocationEvent parse(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Location event is not a JSON object");
+        }
+        long responderId = 0;
+        boolean hasResponderId = false;
+        boolean moving = false;
+        double lat = Double.NaN;
+        double lon = Double.NaN;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "responderId":
+                    if (token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_INT) {
+                        responderId = Long.parseLong(parser.getText());
+                        hasResponderId = true;
+                    }
+                    break;
+                case "status":
+                    if (token != JsonToken.VALUE_STRING || !MOVING.equalsIgnoreCase(parser.getText())) {
+                        return null;
+                    }
+                    moving = true;
+                    break;
+                case "lat":
+                    lat = token.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+                    break;
+                case "lon":
+                    lon = token.isNumeric() ? parser.getDoubleValue() : Double.NaN;
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (!hasResponderId || !moving) {
+            return null;
+        }
+        return new LocationEvent(responderId, lat, lon);
+    }
+}
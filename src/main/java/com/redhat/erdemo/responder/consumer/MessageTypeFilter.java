@@ -0,0 +1,104 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * Decides from the raw record whether a message can be an UpdateResponderCommand, without decoding the payload.
+ * A <code>messageType</code> record header is used when present. Otherwise the payload bytes are scanned for
+ * <code>"messageType"</code> fields, and the message is rejected when none of them has the UpdateResponderCommand
+ * value. Values with escape sequences are left to the parser.
+ */
+public final class MessageTypeFilter {
+
+    public static final String HEADER = "messageType";
+
+    private static final byte[] KEY = "\"messageType\"".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] ACCEPTED = UpdateResponderCommandParser.UPDATE_RESPONDER_COMMAND.getBytes(StandardCharsets.UTF_8);
+
+    private static final int[] SKIP = new int[256];
+
+    static {
+        Arrays.fill(SKIP, KEY.length);
+        for (int i = 0; i < KEY.length - 1; i++) {
+            SKIP[KEY[i] & 0xff] = KEY.length - 1 - i;
+        }
+    }
+
+    private MessageTypeFilter() {}
+
+    public static boolean accept(Headers headers, byte[] payload) {
+        Header header = headers == null ? null : headers.lastHeader(HEADER);
+        if (header != null && header.value() != null) {
+            return Arrays.equals(header.value(), ACCEPTED);
+        }
+        return accept(payload);
+    }
+
+    public static boolean accept(byte[] payload) {
+        if (payload == null) {
+            return false;
+        }
+        int i = indexOf(payload, KEY, 0);
+        while (i >= 0) {
+            int p = skipWhitespace(payload, i + KEY.length);
+            // a colon after the closing quote, otherwise the text is not a field name
+            if (p < payload.length && payload[p] == ':') {
+                p = skipWhitespace(payload, p + 1);
+                if (p < payload.length && payload[p] == '"' && isAccepted(payload, p + 1)) {
+                    return true;
+                }
+            }
+            i = indexOf(payload, KEY, i + KEY.length);
+        }
+        return false;
+    }
+
+    private static boolean isAccepted(byte[] payload, int from) {
+        int end = from + ACCEPTED.length;
+        if (end < payload.length && payload[end] == '"') {
+            boolean equal = true;
+            for (int i = 0; i < ACCEPTED.length && equal; i++) {
+                equal = payload[from + i] == ACCEPTED[i];
+            }
+            if (equal) {
+                return true;
+            }
+        }
+        for (int i = from; i < payload.length && payload[i] != '"'; i++) {
+            if (payload[i] == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int skipWhitespace(byte[] payload, int from) {
+        int i = from;
+        while (i < payload.length && (payload[i] == ' ' || payload[i] == '\t' || payload[i] == '\n' || payload[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    // Horspool search, skips ahead by up to the key length on a mismatch
+    private static int indexOf(byte[] payload, byte[] key, int from) {
+        int last = key.length - 1;
+        int i = from;
+        while (i + last < payload.length) {
+            int j = last;
+            while (payload[i + j] == key[j]) {
+                if (j == 0) {
+                    return i;
+                }
+                j--;
+            }
+            i += SKIP[payload[i + last] & 0xff];
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,234 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.reactive.messaging.kafka.IncomingKafkaRecord;
+import io.smallrye.reactive.messaging.kafka.KafkaConsumerRebalanceListener;
+import io.vertx.kafka.client.common.TopicPartition;
+import io.vertx.kafka.client.consumer.OffsetAndMetadata;
+import io.vertx.mutiny.kafka.client.consumer.KafkaConsumer;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Commits consumer offsets in batches instead of one commit per acked record. The acked offsets of each assigned
+ * partition are tracked, and only the highest offset below which every received record is acked is committed:
+ * every <code>max-records</code> acks of a partition, every <code>interval-ms</code>, and when the partition is
+ * revoked. Set as <code>consumer-rebalance-listener.name</code> of the incoming channels, which is how it learns
+ * about assigned partitions and gets hold of the consumer.
+ */
+@ApplicationScoped
+@Named("responder-offset-commit")
+public class OffsetCommitter implements KafkaConsumerRebalanceListener {
+
+    private static final Logger log = LoggerFactory.getLogger(OffsetCommitter.class);
+
+    @ConfigProperty(name = "responder.consumer.offset-commit.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "responder.consumer.offset-commit.max-records", defaultValue = "500")
+    int maxRecords;
+
+    @ConfigProperty(name = "responder.consumer.offset-commit.interval-ms", defaultValue = "1000")
+    long intervalMs;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    Counter acked;
+
+    Counter commits;
+
+    private final Map<TopicPartition, PartitionOffsets> partitions = new HashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void init() {
+        acked = metricRegistry.counter(Metadata.builder().withName("responder.consumer.offset-commit.acked")
+                .withType(MetricType.COUNTER).withDescription("Number of acked records").build());
+        commits = metricRegistry.counter(Metadata.builder().withName("responder.consumer.offset-commit.commits")
+                .withType(MetricType.COUNTER).withDescription("Number of offset commits").build());
+        if (enabled) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "responder-offset-commit"));
+            scheduler.scheduleWithFixedDelay(this::commitAll, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        commitAll();
+    }
+
+    /**
+     * @return the message to ack once the record is processed. The record itself when offsets are not batched or
+     * the partition is not known, acking it commits as configured by the channel's <code>commit-strategy</code>.
+     */
+    public Message<?> track(IncomingKafkaRecord<?, ?> record) {
+        if (!enabled) {
+            return record;
+        }
+        TopicPartition topicPartition = new TopicPartition(record.getTopic(), record.getPartition());
+        synchronized (this) {
+            PartitionOffsets offsets = partitions.get(topicPartition);
+            if (offsets == null) {
+                return record;
+            }
+            offsets.received(record.getOffset());
+            return record.withAck(() -> acked(offsets, record.getOffset()));
+        }
+    }
+
+    @Override
+    public Uni<Void> onPartitionsAssigned(KafkaConsumer<?, ?> consumer, Set<TopicPartition> assigned) {
+        if (enabled) {
+            synchronized (this) {
+                assigned.forEach(tp -> partitions.put(tp, new PartitionOffsets(tp, consumer)));
+            }
+        }
+        return Uni.createFrom().voidItem();
+    }
+
+    @Override
+    public Uni<Void> onPartitionsRevoked(KafkaConsumer<?, ?> consumer, Set<TopicPartition> revoked) {
+        if (!enabled) {
+            return Uni.createFrom().voidItem();
+        }
+        List<CompletableFuture<Void>> committed = new ArrayList<>();
+        synchronized (this) {
+            revoked.forEach(tp -> {
+                PartitionOffsets offsets = partitions.remove(tp);
+                if (offsets != null) {
+                    committed.add(commit(offsets));
+                }
+            });
+        }
+        return Uni.createFrom().completionStage(CompletableFuture.allOf(committed.toArray(new CompletableFuture[0])));
+    }
+
+    synchronized void commitAll() {
+        partitions.values().forEach(this::commit);
+    }
+
+    private synchronized CompletionStage<Void> acked(PartitionOffsets offsets, long offset) {
+        acked.inc();
+        // the partition was revoked, the new owner processes the record again
+        if (partitions.get(offsets.topicPartition) == offsets && offsets.acked(offset) >= maxRecords) {
+            commit(offsets);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // completes when the commit completes, also when it failed
+    private CompletableFuture<Void> commit(PartitionOffsets offsets) {
+        if (offsets.committing >= offsets.contiguous) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long offset = offsets.contiguous;
+        offsets.committing = offset;
+        offsets.pending = 0;
+        commits.inc();
+        Map<TopicPartition, OffsetAndMetadata> commit = new HashMap<>();
+        // the committed offset is the next record to read
+        commit.put(offsets.topicPartition, new OffsetAndMetadata(offset + 1, null));
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        io.vertx.kafka.client.consumer.KafkaConsumer<?, ?> consumer = offsets.consumer.getDelegate();
+        consumer.commit(commit, ar -> {
+            synchronized (OffsetCommitter.this) {
+                if (ar.succeeded()) {
+                    offsets.committed = Math.max(offsets.committed, offset);
+                } else {
+                    log.warn("Exception '" + ar.cause().getClass() + "' when committing offset " + (offset + 1) + " of "
+                            + offsets.topicPartition.getTopic() + "-" + offsets.topicPartition.getPartition());
+                    // committed again by the next commit of the partition
+                    if (offsets.committing == offset) {
+                        offsets.committing = offsets.committed;
+                    }
+                }
+            }
+            result.complete(null);
+        });
+        return result;
+    }
+
+    static class PartitionOffsets {
+
+        private final TopicPartition topicPartition;
+
+        private final KafkaConsumer<?, ?> consumer;
+
+        // received and not yet acked offsets in order
+        private final ArrayDeque<Long> received = new ArrayDeque<>();
+
+        // offsets acked before all previously received offsets
+        private final Set<Long> ackedOutOfOrder = new HashSet<>();
+
+        private long contiguous = -1;
+
+        // highest offset of a successful commit
+        private long committed = -1;
+
+        // highest offset of a commit which did not fail, it may still be in flight
+        private long committing = -1;
+
+        private int pending;
+
+        PartitionOffsets(TopicPartition topicPartition, KafkaConsumer<?, ?> consumer) {
+            this.topicPartition = topicPartition;
+            this.consumer = consumer;
+        }
+
+        void received(long offset) {
+            received.addLast(offset);
+        }
+
+        // returns the number of acks since the last commit
+        int acked(long offset) {
+            pending++;
+            Long first = received.peekFirst();
+            if (first == null || first != offset) {
+                ackedOutOfOrder.add(offset);
+                return pending;
+            }
+            received.pollFirst();
+            contiguous = offset;
+            Iterator<Long> it = received.iterator();
+            while (it.hasNext() && !ackedOutOfOrder.isEmpty()) {
+                Long next = it.next();
+                if (!ackedOutOfOrder.remove(next)) {
+                    break;
+                }
+                it.remove();
+                contiguous = next;
+            }
+            return pending;
+        }
+    }
+}
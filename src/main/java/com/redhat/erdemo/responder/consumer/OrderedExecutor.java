@@ -0,0 +1,98 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+
+/**
+ * Runs tasks on a fixed number of single-threaded lanes with bounded queues. Tasks with the same key always run
+ * on the same lane, so they are executed in submission order, while tasks for different keys run in parallel.
+ */
+public class OrderedExecutor {
+
+    private final String name;
+
+    private final ThreadPoolExecutor[] lanes;
+
+    private volatile Timer waitTimer;
+
+    public OrderedExecutor(String name, int lanes, int capacity) {
+        this.name = name;
+        this.lanes = new ThreadPoolExecutor[lanes];
+        for (int i = 0; i < lanes; i++) {
+            String threadName = name + "-lane-" + i;
+            this.lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity),
+                    r -> new Thread(r, threadName));
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(Object key, Supplier<T> task) {
+        try {
+            Timer timer = waitTimer;
+            if (timer == null) {
+                return CompletableFuture.supplyAsync(task, lane(key));
+            }
+            long queued = System.nanoTime();
+            return CompletableFuture.supplyAsync(() -> {
+                timer.update(System.nanoTime() - queued, TimeUnit.NANOSECONDS);
+                return task.get();
+            }, lane(key));
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    public boolean hasCapacity(Object key) {
+        return lane(key).getQueue().remainingCapacity() > 0;
+    }
+
+    public int depth(int lane) {
+        return lanes[lane].getQueue().size();
+    }
+
+    public int lanes() {
+        return lanes.length;
+    }
+
+    public void registerMetrics(MetricRegistry registry) {
+        Metadata metadata = Metadata.builder().withName("responder.consumer.lane.depth").withType(MetricType.GAUGE)
+                .withDescription("Number of records waiting in a consumer lane").build();
+        for (int i = 0; i < lanes.length; i++) {
+            int lane = i;
+            registry.register(metadata, (Gauge<Integer>) () -> depth(lane),
+                    new Tag("channel", name), new Tag("lane", Integer.toString(lane)));
+        }
+        waitTimer = registry.timer(Metadata.builder().withName("responder.consumer.lane.wait").withType(MetricType.TIMER)
+                .withDescription("Time a record waits in a consumer lane before it is processed").build(), new Tag("channel", name));
+    }
+
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            try {
+                lane.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private ThreadPoolExecutor lane(Object key) {
+        return lanes[Math.floorMod(Objects.hashCode(key), lanes.length)];
+    }
+}
@@ -0,0 +1,130 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the number of consumer tasks which use a database connection at the same time, and keeps
+ * <code>reserved-permits</code> of them for priority tasks, the commands for an incident. Other tasks, location
+ * updates first of all, back off as long as a priority task waits for a permit.
+ */
+@ApplicationScoped
+public class PriorityGate {
+
+    private static final Logger log = LoggerFactory.getLogger(PriorityGate.class);
+
+    @ConfigProperty(name = "responder.priority.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "responder.priority.db-permits", defaultValue = "6")
+    int permits;
+
+    @ConfigProperty(name = "responder.priority.reserved-permits", defaultValue = "2")
+    int reserved;
+
+    @ConfigProperty(name = "responder.consumer.lanes", defaultValue = "4")
+    int lanes;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    Timer priorityWait;
+
+    Timer bulkWait;
+
+    private int inUse;
+
+    private int priorityWaiting;
+
+    @PostConstruct
+    void init() {
+        Metadata metadata = Metadata.builder().withName("responder.priority.wait").withType(MetricType.TIMER)
+                .withDescription("Time waited for a database permit").build();
+        priorityWait = metricRegistry.timer(metadata, new Tag("class", "priority"));
+        bulkWait = metricRegistry.timer(metadata, new Tag("class", "bulk"));
+        metricRegistry.register(Metadata.builder().withName("responder.priority.permits.in-use").withType(MetricType.GAUGE)
+                .withDescription("Number of database permits in use").build(), (Gauge<Integer>) this::inUse);
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        if (reserved < 0 || reserved >= permits) {
+            throw new IllegalArgumentException("responder.priority.reserved-permits must be at least 0 and less than "
+                    + "responder.priority.db-permits, got " + reserved + " of " + permits);
+        }
+        // the command and the location consumer each run one task per lane
+        if (enabled && permits - reserved >= 2 * lanes) {
+            log.warn("responder.priority.db-permits minus reserved-permits (" + (permits - reserved) + ") is not below the "
+                    + (2 * lanes) + " consumer lanes, location updates will not back off for incident commands");
+        }
+    }
+
+    public <T> T call(boolean priority, Supplier<T> task) {
+        if (!enabled) {
+            return task.get();
+        }
+        try {
+            acquire(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a database permit", e);
+        }
+        try {
+            return task.get();
+        } finally {
+            release();
+        }
+    }
+
+    public void run(boolean priority, Runnable task) {
+        call(priority, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    void acquire(boolean priority) throws InterruptedException {
+        long start = System.nanoTime();
+        synchronized (this) {
+            if (priority) {
+                priorityWaiting++;
+                try {
+                    while (inUse >= permits) {
+                        wait();
+                    }
+                } finally {
+                    priorityWaiting--;
+                }
+            } else {
+                while (inUse >= permits - reserved || priorityWaiting > 0) {
+                    wait();
+                }
+            }
+            inUse++;
+        }
+        (priority ? priorityWait : bulkWait).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    synchronized void release() {
+        inUse--;
+        notifyAll();
+    }
+
+    synchronized int inUse() {
+        return inUse;
+    }
+}
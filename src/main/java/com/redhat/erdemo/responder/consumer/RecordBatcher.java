@@ -0,0 +1,137 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Groups records into batches of at most <code>maxSize</code> items, or whatever arrived within
+ * <code>lingerMs</code>, and hands each batch to a handler in one call. The messages of a batch are acked together
+ * once the batch is processed. When the batch handler fails, the items are processed one by one with the fallback.
+ * A batch never holds more than <code>maxSize</code> messages: the message which fills a batch is only accepted once
+ * that batch is flushed, so the stream waits for the flush.
+ */
+class RecordBatcher<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(RecordBatcher.class);
+
+    private final String name;
+
+    private final int maxSize;
+
+    private final Consumer<List<T>> handler;
+
+    private final Consumer<T> fallback;
+
+    private final ScheduledExecutorService scheduler;
+
+    private List<T> items = new ArrayList<>();
+
+    private List<Message<?>> messages = new ArrayList<>();
+
+    private List<CompletableFuture<Void>> acks = new ArrayList<>();
+
+    private CompletableFuture<Void> flushed = new CompletableFuture<>();
+
+    RecordBatcher(String name, int maxSize, long lingerMs, Consumer<List<T>> handler, Consumer<T> fallback) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.handler = handler;
+        this.fallback = fallback;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, name + "-batch"));
+        scheduler.scheduleWithFixedDelay(this::flush, lingerMs, lingerMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A null item only adds the message to the batch acks.
+     *
+     * @return completed with the ack of the message when the batch has room for the next message.
+     */
+    synchronized CompletionStage<CompletionStage<Void>> add(T item, Message<?> message) {
+        if (item != null) {
+            items.add(item);
+        }
+        messages.add(message);
+        CompletableFuture<Void> acked = new CompletableFuture<>();
+        acks.add(acked);
+        if (messages.size() >= maxSize) {
+            CompletableFuture<Void> full = flushed;
+            scheduler.execute(this::flush);
+            return full.thenApply(v -> acked);
+        }
+        return CompletableFuture.completedFuture(acked);
+    }
+
+    void flush() {
+        List<T> batch;
+        List<Message<?>> batchMessages;
+        List<CompletableFuture<Void>> batchAcks;
+        CompletableFuture<Void> batchFlushed;
+        synchronized (this) {
+            if (messages.isEmpty()) {
+                return;
+            }
+            batch = items;
+            batchMessages = messages;
+            batchAcks = acks;
+            batchFlushed = flushed;
+            items = new ArrayList<>();
+            messages = new ArrayList<>();
+            acks = new ArrayList<>();
+            flushed = new CompletableFuture<>();
+        }
+        try {
+            if (!batch.isEmpty()) {
+                process(batch);
+            }
+            for (int i = 0; i < batchMessages.size(); i++) {
+                CompletableFuture<Void> acked = batchAcks.get(i);
+                batchMessages.get(i).ack().whenComplete((v, t) -> {
+                    if (t != null) {
+                        acked.completeExceptionally(t);
+                    } else {
+                        acked.complete(null);
+                    }
+                });
+            }
+        } finally {
+            batchFlushed.complete(null);
+        }
+    }
+
+    void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void process(List<T> batch) {
+        try {
+            handler.accept(batch);
+            log.debug("Processed batch of " + batch.size() + " records from " + name);
+        } catch (Exception e) {
+            log.warn("Exception '" + e.getClass() + "' when processing batch of " + batch.size() + " records from " + name
+                    + ". Processing the records one by one.");
+            batch.forEach(item -> {
+                try {
+                    fallback.accept(item);
+                } catch (Exception ex) {
+                    log.error("Error processing record from " + name, ex);
+                }
+            });
+        }
+    }
+}
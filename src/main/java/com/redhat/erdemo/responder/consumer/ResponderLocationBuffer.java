@@ -0,0 +1,220 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.redhat.erdemo.responder.model.Responder;
+import com.redhat.erdemo.responder.service.LocationThrottle;
+import com.redhat.erdemo.responder.service.ResponderService;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the newest location per responder and writes them to the database in one transaction every
+ * flush interval, or as soon as max entries or max messages are pending. Messages are acked only after the flush that
+ * covers them. The message which fills the buffer is only accepted once the buffer is flushed, so the stream waits.
+ */
+@ApplicationScoped
+public class ResponderLocationBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponderLocationBuffer.class);
+
+    @ConfigProperty(name = "responder.location.write-behind.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "responder.location.write-behind.flush-interval-ms", defaultValue = "500")
+    long flushIntervalMs;
+
+    @ConfigProperty(name = "responder.location.write-behind.max-entries", defaultValue = "500")
+    int maxEntries;
+
+    @ConfigProperty(name = "responder.location.write-behind.max-messages", defaultValue = "10000")
+    int maxMessages;
+
+    @Inject
+    ResponderService responderService;
+
+    @Inject
+    PriorityGate priorityGate;
+
+    @Inject
+    LocationThrottle throttle;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
+    private Map<String, Responder> pending = new ConcurrentHashMap<>();
+
+    private ConcurrentLinkedQueue<PendingAck> acks = new ConcurrentLinkedQueue<>();
+
+    private AtomicInteger messages = new AtomicInteger();
+
+    private CompletableFuture<Void> flushed = new CompletableFuture<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            start();
+            log.info("Location write-behind enabled. Flush interval " + flushIntervalMs + " ms, max entries " + maxEntries);
+        }
+    }
+
+    // starts the periodic flush, also used when the buffer is only needed temporarily to catch up on a backlog
+    public synchronized void start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "responder-location-flush"));
+            scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(flushIntervalMs * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flush();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * A null responder only defers the ack, so the offset is not committed ahead of buffered locations.
+     *
+     * @return completed with the ack of the message when the buffer has room for the next message.
+     */
+    public CompletionStage<CompletionStage<Void>> add(Responder responder, Message<?> message) {
+        PendingAck ack = new PendingAck(message);
+        int size;
+        int count;
+        CompletableFuture<Void> batchFlushed;
+        lock.readLock().lock();
+        try {
+            if (responder != null) {
+                pending.put(responder.getId(), responder);
+            }
+            acks.add(ack);
+            size = pending.size();
+            count = messages.incrementAndGet();
+            batchFlushed = flushed;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (size >= maxEntries || count >= maxMessages) {
+            requestFlush();
+            return batchFlushed.thenApply(v -> ack.acked);
+        }
+        return CompletableFuture.completedFuture(ack.acked);
+    }
+
+    // flushes on the flush thread without waiting for the flush interval
+    public void requestFlush() {
+        if (scheduler != null && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flush);
+        }
+    }
+
+    void flush() {
+        flushRequested.set(false);
+        Map<String, Responder> batch;
+        ConcurrentLinkedQueue<PendingAck> batchAcks;
+        int batchMessages;
+        CompletableFuture<Void> batchFlushed;
+        lock.writeLock().lock();
+        try {
+            batch = pending;
+            batchAcks = acks;
+            batchMessages = messages.get();
+            batchFlushed = flushed;
+            pending = new ConcurrentHashMap<>();
+            acks = new ConcurrentLinkedQueue<>();
+            messages = new AtomicInteger();
+            flushed = new CompletableFuture<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (batch.isEmpty() && batchAcks.isEmpty()) {
+            batchFlushed.complete(null);
+            return;
+        }
+        try {
+            if (!batch.isEmpty()) {
+                throttle.persisted(priorityGate.call(false, () -> responderService.updateResponderLocations(new ArrayList<>(batch.values()))));
+            }
+        } catch (Exception e) {
+            log.warn("Exception '" + e.getClass() + "' when flushing " + batch.size() + " responder locations. Locations will be retried with the next flush.");
+            requeue(batch, batchAcks, batchMessages, batchFlushed);
+            return;
+        }
+        log.debug("Flushed " + batch.size() + " responder locations, acknowledging " + batchAcks.size() + " messages");
+        batchAcks.forEach(PendingAck::ack);
+        batchFlushed.complete(null);
+    }
+
+    private void requeue(Map<String, Responder> batch, ConcurrentLinkedQueue<PendingAck> batchAcks, int batchMessages,
+                         CompletableFuture<Void> batchFlushed) {
+        lock.writeLock().lock();
+        try {
+            // locations received since the failed flush are newer and take precedence
+            batch.forEach(pending::putIfAbsent);
+            batchAcks.addAll(acks);
+            acks = batchAcks;
+            messages.addAndGet(batchMessages);
+            // a stream waiting for the failed flush waits for the next one
+            flushed.whenComplete((v, t) -> batchFlushed.complete(null));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    private static class PendingAck {
+
+        private final Message<?> message;
+
+        private final CompletableFuture<Void> acked = new CompletableFuture<>();
+
+        PendingAck(Message<?> message) {
+            this.message = message;
+        }
+
+        void ack() {
+            message.ack().whenComplete((v, t) -> {
+                if (t != null) {
+                    acked.completeExceptionally(t);
+                } else {
+                    acked.complete(null);
+                }
+            });
+        }
+    }
+}
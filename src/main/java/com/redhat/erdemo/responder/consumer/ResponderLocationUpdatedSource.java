@@ -1,17 +1,26 @@
 package com.redhat.erdemo.responder.consumer;
 
-import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
 import com.redhat.erdemo.responder.model.Responder;
+import com.redhat.erdemo.responder.service.LocationThrottle;
 import com.redhat.erdemo.responder.service.ResponderService;
+import com.redhat.erdemo.responder.service.ResponderTrackStore;
 import io.smallrye.reactive.messaging.kafka.IncomingKafkaRecord;
-import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
 import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.Message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,29 +32,185 @@ public class ResponderLocationUpdatedSource {
     @Inject
     ResponderService responderService;
 
+    @Inject
+    ResponderLocationBuffer locationBuffer;
+
+    @Inject
+    LocationThrottle throttle;
+
+    @Inject
+    ResponderTrackStore trackStore;
+
+    @Inject
+    OffsetCommitter offsetCommitter;
+
+    @Inject
+    PriorityGate priorityGate;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @ConfigProperty(name = "responder.consumer.lanes", defaultValue = "4")
+    int lanes;
+
+    @ConfigProperty(name = "responder.consumer.lane-capacity", defaultValue = "256")
+    int laneCapacity;
+
+    @ConfigProperty(name = "responder.consumer.batch.enabled", defaultValue = "false")
+    boolean batchEnabled;
+
+    @ConfigProperty(name = "responder.consumer.batch.max-size", defaultValue = "100")
+    int batchMaxSize;
+
+    @ConfigProperty(name = "responder.consumer.batch.linger-ms", defaultValue = "50")
+    long batchLingerMs;
+
+    @ConfigProperty(name = "responder.location.catch-up.enabled", defaultValue = "false")
+    boolean catchUpEnabled;
+
+    @ConfigProperty(name = "responder.location.catch-up.enter-lag-ms", defaultValue = "60000")
+    long catchUpEnterLagMs;
+
+    @ConfigProperty(name = "responder.location.catch-up.exit-lag-ms", defaultValue = "5000")
+    long catchUpExitLagMs;
+
+    private final AckSequencer ackSequencer = new AckSequencer();
+
+    private CatchUpMode catchUp;
+
+    // last ack handed out in catch-up mode resp. batch mode, the stream waits for it when switching modes
+    private CompletionStage<Void> lastCatchUpAck = CompletableFuture.completedFuture(null);
+
+    private CompletionStage<Void> lastBatchAck = CompletableFuture.completedFuture(null);
+
+    private OrderedExecutor executor;
+
+    private RecordBatcher<Responder> batcher;
+
+    @PostConstruct
+    void init() {
+        executor = new OrderedExecutor("responder-update-location", lanes, laneCapacity);
+        executor.registerMetrics(metricRegistry);
+        if (batchEnabled) {
+            batcher = new RecordBatcher<>("responder-update-location", batchMaxSize, batchLingerMs,
+                    responders -> throttle.persisted(priorityGate.call(false, () -> responderService.updateResponderLocations(responders))),
+                    responder -> throttle.persisted(priorityGate.call(false, () -> responderService.updateResponderLocation(responder))));
+        }
+        if (catchUpEnabled && !locationBuffer.isEnabled()) {
+            catchUp = new CatchUpMode(catchUpEnterLagMs, catchUpExitLagMs);
+            metricRegistry.register(Metadata.builder().withName("responder.location.catch-up.active").withType(MetricType.GAUGE)
+                    .withDescription("1 when location updates are compacted to catch up on a backlog").build(),
+                    (Gauge<Integer>) () -> catchUp.isActive() ? 1 : 0);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+        executor.shutdown();
+    }
+
     @Incoming("responder-update-location")
     @Acknowledgment(Acknowledgment.Strategy.MANUAL)
-    public CompletionStage<CompletionStage<Void>> onMessage(IncomingKafkaRecord<String, String> message) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                JsonObject json = new JsonObject(message.getPayload());
-                String responderId = json.getString("responderId");
-                BigDecimal lat = json.getDouble("lat") != null ? BigDecimal.valueOf(json.getDouble("lat")) : null;
-                BigDecimal lon = json.getDouble("lon") != null ? BigDecimal.valueOf(json.getDouble("lon")) : null;
-                String status = json.getString("status");
-                if (responderId != null && "MOVING".equalsIgnoreCase(status)) {
-                    Responder responder = new Responder.Builder(responderId).latitude(lat).longitude(lon).build();
-                    log.debug("Processing 'ResponderUpdateLocationEvent' message for responder '" + responder.getId()
-                            + "' from topic:partition:offset " + message.getTopic() + ":" + message.getPartition()
-                            + ":" + message.getOffset() + ". Message: " + json.toString());
-                    responderService.updateResponderLocation(responder);
+    public CompletionStage<CompletionStage<Void>> onMessage(IncomingKafkaRecord<String, byte[]> message) {
+        Responder responder = toResponder(message);
+        Message<?> ack = offsetCommitter.track(message);
+        if (locationBuffer.isEnabled()) {
+            return locationBuffer.add(responder, ack);
+        }
+        if (catchUp != null) {
+            boolean changed = catchUp.update(lag(message));
+            if (catchUp.isActive()) {
+                if (changed) {
+                    log.info("Location consumer lag above " + catchUpEnterLagMs + " ms, compacting location updates until caught up");
+                    locationBuffer.start();
+                    // records handed to the lanes or the batcher are acked before the first compacted record
+                    return drained().thenCompose(v -> addToBuffer(responder, ack));
                 }
+                return addToBuffer(responder, ack);
+            }
+            if (changed) {
+                log.info("Location consumer lag below " + catchUpExitLagMs + " ms, leaving catch-up mode");
+                locationBuffer.requestFlush();
+                return lastCatchUpAck.handle((v, t) -> null).thenCompose(v -> process(responder, message, ack));
+            }
+        }
+        return process(responder, message, ack);
+    }
 
+    private CompletionStage<CompletionStage<Void>> process(Responder responder, IncomingKafkaRecord<String, byte[]> message, Message<?> ack) {
+        if (batcher != null) {
+            CompletionStage<CompletionStage<Void>> added = batcher.add(responder, ack);
+            lastBatchAck = added.thenCompose(acked -> acked);
+            return added;
+        }
+        if (responder == null) {
+            return CompletableFuture.completedFuture(ackSequencer.ack(message, ack, CompletableFuture.completedFuture(null)));
+        }
+        CompletableFuture<Void> processed = executor.submit(responder.getId(), () -> {
+            try {
+                throttle.persisted(priorityGate.call(false, () -> responderService.updateResponderLocation(responder)));
             } catch (Exception e) {
-                log.warn("Unexpected message structure: " + message.getPayload());
+                log.warn("Exception '" + e.getClass() + "' when processing location update: " + KafkaRecords.payload(message));
             }
-            return message.ack();
+            return null;
         });
+        CompletionStage<Void> acked = ackSequencer.ack(message, ack, processed);
+        if (executor.hasCapacity(responder.getId())) {
+            return CompletableFuture.completedFuture(acked);
+        }
+        // the lane is full: hold the stream until this record is processed
+        return processed.handle((v, t) -> acked);
+    }
+
+    private CompletionStage<CompletionStage<Void>> addToBuffer(Responder responder, Message<?> ack) {
+        CompletionStage<CompletionStage<Void>> added = locationBuffer.add(responder, ack);
+        lastCatchUpAck = added.thenCompose(acked -> acked);
+        return added;
+    }
+
+    private CompletionStage<Void> drained() {
+        return CompletableFuture.allOf(ackSequencer.drained().toCompletableFuture(),
+                lastBatchAck.handle((v, t) -> null).toCompletableFuture());
+    }
+
+    // age of the record, records without a timestamp count as not lagging
+    private long lag(IncomingKafkaRecord<String, byte[]> message) {
+        return System.currentTimeMillis() - timestamp(message);
+    }
+
+    private long timestamp(IncomingKafkaRecord<String, byte[]> message) {
+        Instant timestamp = message.getTimestamp();
+        if (timestamp == null || timestamp.toEpochMilli() <= 0) {
+            return System.currentTimeMillis();
+        }
+        return timestamp.toEpochMilli();
+    }
+
+    private Responder toResponder(IncomingKafkaRecord<String, byte[]> message) {
+        try {
+            LocationEvent event = LocationEventParser.parse(message.getPayload());
+            if (event != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Processing 'ResponderUpdateLocationEvent' message for responder '" + event.getResponderId()
+                            + "' from topic:partition:offset " + message.getTopic() + ":" + message.getPartition()
+                            + ":" + message.getOffset() + ". Message: " + KafkaRecords.payload(message));
+                }
+                if (trackStore.isEnabled() && !Double.isNaN(event.getLatitude()) && !Double.isNaN(event.getLongitude())) {
+                    trackStore.record(event.getResponderId(), event.getLatitude(), event.getLongitude(), timestamp(message));
+                }
+                if (throttle.isEnabled() && !throttle.accept(event.getResponderId(), event.getLatitude(), event.getLongitude())) {
+                    log.debug("Location update for responder '" + event.getResponderId() + "' dropped by throttle");
+                    return null;
+                }
+                return event.toResponder();
+            }
+        } catch (Exception e) {
+            log.warn("Unexpected message structure: " + KafkaRecords.payload(message));
+        }
+        return null;
     }
 
 }
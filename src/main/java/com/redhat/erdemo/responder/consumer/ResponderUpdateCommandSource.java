@@ -1,23 +1,31 @@
 package com.redhat.erdemo.responder.consumer;
 
-import java.math.BigDecimal;
-import java.util.Arrays;
-import java.util.Map;
-import java.util.Optional;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
 import com.redhat.erdemo.responder.model.Responder;
 import com.redhat.erdemo.responder.service.EventPublisher;
+import com.redhat.erdemo.responder.service.ProcessedMessageCache;
 import com.redhat.erdemo.responder.service.ResponderService;
 import io.smallrye.reactive.messaging.kafka.IncomingKafkaRecord;
-import io.vertx.core.json.JsonObject;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.Message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,8 +34,7 @@ public class ResponderUpdateCommandSource {
 
     private final static Logger log = LoggerFactory.getLogger(ResponderUpdateCommandSource.class);
 
-    private static final String UPDATE_RESPONDER_COMMAND = "UpdateResponderCommand";
-    private static final String[] ACCEPTED_MESSAGE_TYPES = {UPDATE_RESPONDER_COMMAND};
+    private static final String UPDATE_RESPONDER_COMMAND = UpdateResponderCommandParser.UPDATE_RESPONDER_COMMAND;
 
     @Inject
     ResponderService responderService;
@@ -35,69 +42,224 @@ public class ResponderUpdateCommandSource {
     @Inject
     EventPublisher eventPublisher;
 
+    @Inject
+    ProcessedMessageCache processedMessages;
+
+    @Inject
+    OffsetCommitter offsetCommitter;
+
+    @Inject
+    PriorityGate priorityGate;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @ConfigProperty(name = "responder.consumer.lanes", defaultValue = "4")
+    int lanes;
+
+    @ConfigProperty(name = "responder.consumer.lane-capacity", defaultValue = "256")
+    int laneCapacity;
+
+    @ConfigProperty(name = "responder.command.merge.enabled", defaultValue = "false")
+    boolean mergeEnabled;
+
+    @ConfigProperty(name = "responder.consumer.batch.enabled", defaultValue = "false")
+    boolean batchEnabled;
+
+    @ConfigProperty(name = "responder.consumer.batch.max-size", defaultValue = "100")
+    int batchMaxSize;
+
+    @ConfigProperty(name = "responder.consumer.batch.linger-ms", defaultValue = "50")
+    long batchLingerMs;
+
+    private final AckSequencer ackSequencer = new AckSequencer();
+
+    private OrderedExecutor executor;
+
+    private CommandMerger merger;
+
+    private RecordBatcher<Pair<UpdateResponderCommand, IncomingKafkaRecord<String, byte[]>>> batcher;
+
+    @PostConstruct
+    void init() {
+        executor = new OrderedExecutor("responder-command", lanes, laneCapacity);
+        executor.registerMetrics(metricRegistry);
+        if (batchEnabled) {
+            batcher = new RecordBatcher<>("responder-command", batchMaxSize, batchLingerMs, this::processBatch,
+                    p -> processMessage(p.getLeft(), p.getRight()));
+        }
+        if (mergeEnabled) {
+            merger = new CommandMerger();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+        executor.shutdown();
+    }
+
     @Incoming("responder-command")
     @Acknowledgment(Acknowledgment.Strategy.MANUAL)
-    public CompletionStage<CompletionStage<Void>> onMessage(IncomingKafkaRecord<String, String> message) {
+    public CompletionStage<CompletionStage<Void>> onMessage(IncomingKafkaRecord<String, byte[]> message) {
 
-        return CompletableFuture.supplyAsync(() -> {
+        UpdateResponderCommand command = acceptMessage(message);
+        Message<?> ack = offsetCommitter.track(message);
+        if (batcher != null) {
+            return batcher.add(command == null ? null : ImmutablePair.of(command, message), ack);
+        }
+        if (command == null) {
+            return CompletableFuture.completedFuture(ackSequencer.ack(message, ack, CompletableFuture.completedFuture(null)));
+        }
+        String responderId = command.getResponder().getId();
+        if (merger != null) {
+            return mergeMessage(command, message, ack);
+        }
+        CompletableFuture<Void> processed = executor.submit(responderId, () -> {
             try {
-                acceptMessage(message.getPayload()).ifPresent(j -> processMessage(j, message.getTopic(), message.getPartition(), message.getOffset()));
+                processMessage(command, message);
             } catch (Exception e) {
-                log.error("Error processing msg " + message.getPayload(), e);
-            };
-            return message.ack();
+                log.error("Error processing msg " + KafkaRecords.payload(message), e);
+            }
+            return null;
         });
+        CompletionStage<Void> acked = ackSequencer.ack(message, ack, processed);
+        if (executor.hasCapacity(responderId)) {
+            return CompletableFuture.completedFuture(acked);
+        }
+        // the lane is full: hold the stream until this record is processed
+        return processed.handle((v, t) -> acked);
+    }
+
+    private CompletionStage<CompletionStage<Void>> mergeMessage(UpdateResponderCommand command, IncomingKafkaRecord<String, byte[]> message,
+                                                                Message<?> ack) {
+        String responderId = command.getResponder().getId();
+        CommandMerger.PendingUpdate update = merger.add(command);
+        if (update.startedBy(command)) {
+            update.setProcessed(executor.submit(responderId, () -> {
+                try {
+                    processMerged(merger.take(update));
+                } catch (Exception e) {
+                    log.error("Error processing msg " + KafkaRecords.payload(message), e);
+                }
+                return null;
+            }));
+            // a rejected update is never taken by the lane
+            update.getProcessed().whenComplete((v, t) -> {
+                if (t != null) {
+                    merger.take(update);
+                }
+            });
+        }
+        CompletableFuture<Void> processed = update.getProcessed();
+        CompletionStage<Void> acked = ackSequencer.ack(message, ack, processed);
+        if (executor.hasCapacity(responderId)) {
+            return CompletableFuture.completedFuture(acked);
+        }
+        return processed.handle((v, t) -> acked);
     }
 
-    private void processMessage(JsonObject json, String topic, int partition, long offset) {
-        JsonObject responderJson = json.getJsonObject("body").getJsonObject("responder");
-        Responder responder = fromJson(responderJson);
+    // one update per run of commands which can be merged, each command still gets its own event with its own headers
+    private void processMerged(List<UpdateResponderCommand> commands) {
+        Set<String> messageIds = new HashSet<>();
+        List<UpdateResponderCommand> toProcess = commands.stream()
+                .filter(c -> !isDuplicate(c) && (c.getId() == null || messageIds.add(c.getId())))
+                .collect(Collectors.toList());
+        for (List<UpdateResponderCommand> run : CommandMerger.runs(toProcess)) {
+            Responder responder = CommandMerger.merge(run);
 
-        log.debug("Processing '" + UPDATE_RESPONDER_COMMAND + "' message for responder '" + responder.getId()
-                + "' from topic:partition:offset " + topic + ":" + partition + ":" + offset +". Message: " + json.toString());
+            log.debug("Processing " + run.size() + " merged '" + UPDATE_RESPONDER_COMMAND + "' messages for responder '"
+                    + responder.getId() + "'");
 
-        Triple<Boolean, String, Responder> result = responderService.updateResponder(responder);
+            Triple<Boolean, String, Responder> result = priorityGate.call(run.stream().anyMatch(this::isPriority),
+                    () -> responderService.updateResponder(responder, messageIds(run)));
+            for (UpdateResponderCommand command : run) {
+                publish(command, result);
+            }
+        }
+    }
+
+    private void processMessage(UpdateResponderCommand command, IncomingKafkaRecord<String, byte[]> message) {
+        if (isDuplicate(command)) {
+            return;
+        }
+        Responder responder = command.getResponder();
 
-        Map<String, String> headers = json.getJsonObject("header", new JsonObject()).getMap().entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toString()));
-        if (headers.containsKey("incidentId")) {
-            eventPublisher.responderUpdated(result, headers);
+        if (log.isDebugEnabled()) {
+            log.debug("Processing '" + UPDATE_RESPONDER_COMMAND + "' message for responder '" + responder.getId()
+                    + "' from topic:partition:offset " + message.getTopic() + ":" + message.getPartition() + ":"
+                    + message.getOffset() + ". Message: " + KafkaRecords.payload(message));
         }
+
+        Triple<Boolean, String, Responder> result = priorityGate.call(isPriority(command),
+                () -> responderService.updateResponder(responder, messageIds(Collections.singletonList(command))));
+        publish(command, result);
     }
 
-    private Optional<JsonObject> acceptMessage(String messageAsJson) {
-        try {
-            JsonObject json = new JsonObject(messageAsJson);
-            String messageType = json.getString("messageType");
-            if (Arrays.asList(ACCEPTED_MESSAGE_TYPES).contains(messageType)) {
-                if (json.containsKey("body") && json.getJsonObject("body").containsKey("responder")) {
-                    return Optional.of(json);
-                }
-            }
-            log.debug("Message with type '" + messageType + "' is ignored");
-        } catch (Exception e) {
-            log.warn("Unexpected message which is not JSON or without 'messageType' field.");
-            log.warn("Message: " + messageAsJson);
+    private void processBatch(List<Pair<UpdateResponderCommand, IncomingKafkaRecord<String, byte[]>>> batch) {
+        Set<String> messageIds = new HashSet<>();
+        List<UpdateResponderCommand> commands = batch.stream().map(Pair::getLeft)
+                .filter(c -> !isDuplicate(c) && (c.getId() == null || messageIds.add(c.getId())))
+                .collect(Collectors.toList());
+        if (commands.isEmpty()) {
+            return;
+        }
+        List<Responder> responders = commands.stream().map(UpdateResponderCommand::getResponder).collect(Collectors.toList());
+
+        log.debug("Processing batch of " + commands.size() + " '" + UPDATE_RESPONDER_COMMAND + "' messages");
+
+        List<Triple<Boolean, String, Responder>> results = priorityGate.call(commands.stream().anyMatch(this::isPriority),
+                () -> responderService.updateResponders(responders, messageIds(commands)));
+        for (int i = 0; i < commands.size(); i++) {
+            publish(commands.get(i), results.get(i));
         }
-        return Optional.empty();
     }
 
-    private Responder fromJson(JsonObject json) {
-        if (json == null || !json.containsKey("id")) {
-            return null;
+    // commands for an incident, e.g. a responder assigned to a mission
+    private boolean isPriority(UpdateResponderCommand command) {
+        return command.getHeader().containsKey("incidentId");
+    }
+
+    private boolean isDuplicate(UpdateResponderCommand command) {
+        if (processedMessages.isEnabled() && command.getId() != null && processedMessages.isProcessed(command.getId())) {
+            log.debug("Message with id '" + command.getId() + "' already processed. Ignoring message");
+            return true;
+        }
+        return false;
+    }
+
+    // marked as processed in the transaction of the update
+    private List<String> messageIds(List<UpdateResponderCommand> commands) {
+        if (!processedMessages.isEnabled()) {
+            return Collections.emptyList();
+        }
+        return commands.stream().map(UpdateResponderCommand::getId).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private void publish(UpdateResponderCommand command, Triple<Boolean, String, Responder> result) {
+        if (command.getHeader().containsKey("incidentId")) {
+            eventPublisher.responderUpdated(result, command.getHeader());
         }
-        return new Responder.Builder(json.getString("id"))
-                .name(json.getString("name"))
-                .phoneNumber(json.getString("phoneNumber"))
-                .medicalKit(json.getBoolean("medicalKit"))
-                .boatCapacity(json.getInteger("boatCapacity"))
-                .latitude(json.getDouble("latitude") != null ? BigDecimal.valueOf(json.getDouble("latitude")) : null)
-                .longitude(json.getDouble("longitude") != null ? BigDecimal.valueOf(json.getDouble("longitude")) : null)
-                .available(json.getBoolean("available"))
-                .enrolled(json.getBoolean("enrolled)"))
-                .person(json.getBoolean("person"))
-                .build();
     }
 
+    private UpdateResponderCommand acceptMessage(IncomingKafkaRecord<String, byte[]> message) {
+        if (!MessageTypeFilter.accept(message.getHeaders(), message.getPayload())) {
+            log.debug("Message is ignored, not an '" + UPDATE_RESPONDER_COMMAND + "'");
+            return null;
+        }
+        try {
+            UpdateResponderCommand command = UpdateResponderCommandParser.parse(message.getPayload());
+            if (command == null) {
+                log.debug("Message is ignored, not an '" + UPDATE_RESPONDER_COMMAND + "' with a responder");
+            }
+            return command;
+        } catch (Exception e) {
+            log.warn("Unexpected message which is not JSON or without 'messageType' field.");
+            log.warn("Message: " + KafkaRecords.payload(message));
+        }
+        return null;
+    }
 
 }
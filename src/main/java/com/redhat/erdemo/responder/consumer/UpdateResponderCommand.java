@@ -0,0 +1,32 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.util.Map;
+
+import com.redhat.erdemo.responder.model.Responder;
+
+public final class UpdateResponderCommand {
+
+    private final String id;
+
+    private final Map<String, String> header;
+
+    private final Responder responder;
+
+    public UpdateResponderCommand(String id, Map<String, String> header, Responder responder) {
+        this.id = id;
+        this.header = header;
+        this.responder = responder;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Map<String, String> getHeader() {
+        return header;
+    }
+
+    public Responder getResponder() {
+        return responder;
+    }
+}
@@ -0,0 +1,181 @@
+package com.redhat.erdemo.responder.consumer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.redhat.erdemo.responder.model.Responder;
+
+/**
+ * Streaming parser for responder commands, binds an <code>UpdateResponderCommand</code> message in a single pass.
+ * Parsing stops as soon as a <code>messageType</code> other than UpdateResponderCommand is seen, fields which are
+ * not needed are skipped without being materialized.
+ */
+public final class UpdateResponderCommandParser {
+
+    public static final String UPDATE_RESPONDER_COMMAND = "UpdateResponderCommand";
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private UpdateResponderCommandParser() {}
+
+    /**
+     * @return the command, or <code>null</code> when the message is not an UpdateResponderCommand or has no
+     * responder with an id.
+     */
+    public static UpdateResponderCommand parse(byte[] payload) throws IOException {
+        try (JsonParser parser = factory.createParser(payload)) {
+            return parse(parser);
+        }
+    }
+
+    private static UpdateResponderCommand parse(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Message is not a JSON object");
+        }
+        boolean accepted = false;
+        String id = null;
+        Map<String, String> header = Collections.emptyMap();
+        Responder responder = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "messageType":
+                    if (token != JsonToken.VALUE_STRING || !UPDATE_RESPONDER_COMMAND.equals(parser.getText())) {
+                        return null;
+                    }
+                    accepted = true;
+                    break;
+                case "id":
+                    id = token.isScalarValue() ? parser.getText() : null;
+                    break;
+                case "header":
+                    header = token == JsonToken.START_OBJECT ? header(parser) : Collections.emptyMap();
+                    break;
+                case "body":
+                    if (token == JsonToken.START_OBJECT) {
+                        responder = body(parser);
+                    }
+                    break;
+            }
+            // no-op for scalar values and values that were read
+            parser.skipChildren();
+        }
+        if (!accepted || responder == null) {
+            return null;
+        }
+        return new UpdateResponderCommand(id, header, responder);
+    }
+
+    private static Map<String, String> header(JsonParser parser) throws IOException {
+        Map<String, String> header = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                header.put(field, parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return header;
+    }
+
+    private static Responder body(JsonParser parser) throws IOException {
+        Responder responder = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("responder".equals(field) && token == JsonToken.START_OBJECT) {
+                responder = responder(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return responder;
+    }
+
+    private static Responder responder(JsonParser parser) throws IOException {
+        String id = null;
+        String name = null;
+        String phoneNumber = null;
+        Boolean medicalKit = null;
+        Integer boatCapacity = null;
+        BigDecimal latitude = null;
+        BigDecimal longitude = null;
+        Boolean available = null;
+        Boolean enrolled = null;
+        Boolean person = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "id":
+                    id = token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_INT ? parser.getText() : null;
+                    break;
+                case "name":
+                    name = text(parser, token);
+                    break;
+                case "phoneNumber":
+                    phoneNumber = text(parser, token);
+                    break;
+                case "medicalKit":
+                    medicalKit = bool(token);
+                    break;
+                case "boatCapacity":
+                    boatCapacity = token == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : null;
+                    break;
+                case "latitude":
+                    latitude = token.isNumeric() ? BigDecimal.valueOf(parser.getDoubleValue()) : null;
+                    break;
+                case "longitude":
+                    longitude = token.isNumeric() ? BigDecimal.valueOf(parser.getDoubleValue()) : null;
+                    break;
+                case "available":
+                    available = bool(token);
+                    break;
+                case "enrolled":
+                    enrolled = bool(token);
+                    break;
+                case "person":
+                    person = bool(token);
+                    break;
+            }
+            parser.skipChildren();
+        }
+        if (id == null) {
+            return null;
+        }
+        return new Responder.Builder(id)
+                .name(name)
+                .phoneNumber(phoneNumber)
+                .medicalKit(medicalKit)
+                .boatCapacity(boatCapacity)
+                .latitude(latitude)
+                .longitude(longitude)
+                .available(available)
+                .enrolled(enrolled)
+                .person(person)
+                .build();
+    }
+
+    private static String text(JsonParser parser, JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_STRING ? parser.getText() : null;
+    }
+
+    private static Boolean bool(JsonToken token) {
+        if (token == JsonToken.VALUE_TRUE) {
+            return true;
+        } else if (token == JsonToken.VALUE_FALSE) {
+            return false;
+        }
+        return null;
+    }
+}
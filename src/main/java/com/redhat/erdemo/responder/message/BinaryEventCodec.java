@@ -0,0 +1,270 @@
+package com.redhat.erdemo.responder.message;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+import javax.enterprise.context.ApplicationScoped;
+
+import com.redhat.erdemo.responder.model.Responder;
+
+/**
+ * Compact binary encoding in the protobuf wire format. The payload starts with a zero magic byte and the 4 byte
+ * big-endian schema id, followed by a message of this schema:
+ * <pre>
+ * message Message {
+ *   string id = 1;
+ *   string messageType = 2;
+ *   string invokingService = 3;
+ *   int64 timestamp = 4;
+ *   map&lt;string, string&gt; header = 5;
+ *   oneof body {
+ *     ResponderUpdatedEvent responderUpdatedEvent = 6;
+ *     Responders respondersCreatedEvent = 7;
+ *     Responders respondersDeletedEvent = 8;
+ *   }
+ * }
+ * message ResponderUpdatedEvent { string status = 1; string statusMessage = 2; Responder responder = 3; }
+ * message Responder {
+ *   string id = 1; string name = 2; string phoneNumber = 3; Decimal latitude = 4; Decimal longitude = 5;
+ *   int32 boatCapacity = 6; bool medicalKit = 7; bool available = 8; bool person = 9; bool enrolled = 10;
+ * }
+ * message Decimal { sint64 unscaled = 1; sint32 scale = 2; }
+ * message Responders { repeated int64 responders = 1 [packed = true]; }
+ * </pre>
+ * All fields have explicit presence: a field is written when its value is not null, also when it is empty or false.
+ */
+@ApplicationScoped
+public class BinaryEventCodec implements EventCodec {
+
+    public static final String CONTENT_TYPE = "application/x-protobuf";
+
+    public static final int SCHEMA_ID = 1;
+
+    private static final byte MAGIC = 0;
+
+    private static final int VARINT = 0;
+
+    private static final int LENGTH_DELIMITED = 2;
+
+    private static final ThreadLocal<Writer> writers = ThreadLocal.withInitial(Writer::new);
+
+    @Override
+    public String name() {
+        return "binary";
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    /**
+     * @throws IllegalArgumentException when the message body is not a responder event, or cannot be encoded.
+     */
+    @Override
+    public byte[] encode(Message<?> message) {
+        Writer writer = writers.get();
+        writer.reset();
+        writer.writeByte(MAGIC);
+        writer.writeByte(SCHEMA_ID >>> 24);
+        writer.writeByte(SCHEMA_ID >>> 16);
+        writer.writeByte(SCHEMA_ID >>> 8);
+        writer.writeByte(SCHEMA_ID);
+        writer.string(1, message.getId());
+        writer.string(2, message.getMessageType());
+        writer.string(3, message.getInvokingService());
+        writer.int64(4, message.getTimestamp());
+        if (message.getHeader() != null) {
+            for (Map.Entry<String, String> entry : message.getHeader().entrySet()) {
+                int start = writer.begin(5);
+                writer.string(1, entry.getKey());
+                writer.string(2, entry.getValue());
+                writer.end(start);
+            }
+        }
+        Object body = message.getBody();
+        if (body instanceof ResponderUpdatedEvent) {
+            int start = writer.begin(6);
+            writeResponderUpdated(writer, (ResponderUpdatedEvent) body);
+            writer.end(start);
+        } else if (body instanceof RespondersCreatedEvent) {
+            int start = writer.begin(7);
+            writeIds(writer, ((RespondersCreatedEvent) body).getResponders());
+            writer.end(start);
+        } else if (body instanceof RespondersDeletedEvent) {
+            int start = writer.begin(8);
+            writeIds(writer, ((RespondersDeletedEvent) body).getResponders());
+            writer.end(start);
+        } else if (body != null) {
+            throw new IllegalArgumentException("No encoding for message body " + body.getClass().getName());
+        }
+        return writer.toByteArray();
+    }
+
+    private static void writeResponderUpdated(Writer writer, ResponderUpdatedEvent event) {
+        writer.string(1, event.getStatus());
+        writer.string(2, event.getStatusMessage());
+        Responder responder = event.getResponder();
+        if (responder != null) {
+            int start = writer.begin(3);
+            writer.string(1, responder.getId());
+            writer.string(2, responder.getName());
+            writer.string(3, responder.getPhoneNumber());
+            writeDecimal(writer, 4, responder.getLatitude());
+            writeDecimal(writer, 5, responder.getLongitude());
+            if (responder.getBoatCapacity() != null) {
+                writer.int64(6, responder.getBoatCapacity());
+            }
+            writer.bool(7, responder.isMedicalKit());
+            writer.bool(8, responder.isAvailable());
+            writer.bool(9, responder.isPerson());
+            writer.bool(10, responder.isEnrolled());
+            writer.end(start);
+        }
+    }
+
+    private static void writeDecimal(Writer writer, int field, BigDecimal value) {
+        if (value == null) {
+            return;
+        }
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() > 63) {
+            throw new IllegalArgumentException("Decimal " + value + " has more than 18 digits");
+        }
+        int start = writer.begin(field);
+        writer.sint64(1, unscaled.longValue());
+        writer.sint64(2, value.scale());
+        writer.end(start);
+    }
+
+    private static void writeIds(Writer writer, Long[] ids) {
+        if (ids == null || ids.length == 0) {
+            return;
+        }
+        int start = writer.begin(1);
+        for (Long id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("Responder id is null");
+            }
+            writer.varint(id);
+        }
+        writer.end(start);
+    }
+
+    // reused per thread, length-delimited fields reserve one byte for their length and are moved when it is longer
+    private static final class Writer {
+
+        private byte[] buffer = new byte[512];
+
+        private int position;
+
+        void reset() {
+            position = 0;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void int64(int field, long value) {
+            varint(field << 3 | VARINT);
+            varint(value);
+        }
+
+        void sint64(int field, long value) {
+            varint(field << 3 | VARINT);
+            varint(value << 1 ^ value >> 63);
+        }
+
+        void bool(int field, Boolean value) {
+            if (value != null) {
+                varint(field << 3 | VARINT);
+                writeByte(value ? 1 : 0);
+            }
+        }
+
+        void string(int field, String value) {
+            if (value == null) {
+                return;
+            }
+            int start = begin(field);
+            utf8(value);
+            end(start);
+        }
+
+        int begin(int field) {
+            varint(field << 3 | LENGTH_DELIMITED);
+            ensure(1);
+            return position++;
+        }
+
+        void end(int start) {
+            int length = position - start - 1;
+            int size = 1;
+            for (int l = length >>> 7; l != 0; l >>>= 7) {
+                size++;
+            }
+            if (size > 1) {
+                ensure(size - 1);
+                System.arraycopy(buffer, start + 1, buffer, start + size, length);
+                position += size - 1;
+            }
+            int value = length;
+            while ((value & ~0x7F) != 0) {
+                buffer[start++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[start] = (byte) value;
+        }
+
+        // same output as String.getBytes(UTF_8), an unpaired surrogate is written as '?'
+        private void utf8(String value) {
+            int length = value.length();
+            ensure(length * 3);
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[position++] = (byte) (0xC0 | c >> 6);
+                    buffer[position++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                        buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                        buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                        buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                        buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+                    } else {
+                        buffer[position++] = '?';
+                    }
+                } else {
+                    buffer[position++] = (byte) (0xE0 | c >> 12);
+                    buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    buffer[position++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.redhat.erdemo.responder.message;
+
+/**
+ * Encoding of the messages sent to the responder-event topic. Implementations are application scoped beans, the one
+ * named by <code>responder.event.codec</code> is used. Its content type is sent in the {@link #HEADER} record header,
+ * so consumers can tell the formats apart while they migrate.
+ */
+public interface EventCodec {
+
+    String HEADER = "content-type";
+
+    /**
+     * @return the name used to select the codec in the configuration.
+     */
+    String name();
+
+    String contentType();
+
+    byte[] encode(Message<?> message);
+}
@@ -0,0 +1,24 @@
+package com.redhat.erdemo.responder.message;
+
+import javax.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class JsonEventCodec implements EventCodec {
+
+    public static final String CONTENT_TYPE = "application/json";
+
+    @Override
+    public String name() {
+        return "json";
+    }
+
+    @Override
+    public String contentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] encode(Message<?> message) {
+        return MessageSerializer.serialize(message);
+    }
+}
@@ -0,0 +1,168 @@
+package com.redhat.erdemo.responder.message;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.redhat.erdemo.responder.model.Responder;
+
+/**
+ * Writes outgoing messages as UTF-8 JSON with the streaming generator, without reflective data binding.
+ * The output is identical to <code>Json.encode</code>: the fields are written in declaration order and null values
+ * are included. Each thread reuses its generator and output buffer, only the returned array is allocated per message.
+ */
+public final class MessageSerializer {
+
+    // no separator between the messages written by the same generator
+    private static final JsonFactory factory = new JsonFactory().setRootValueSeparator(null);
+
+    private static final ThreadLocal<Output> outputs = ThreadLocal.withInitial(Output::new);
+
+    private MessageSerializer() {}
+
+    /**
+     * @throws IllegalArgumentException when the message body is not a responder event.
+     */
+    public static byte[] serialize(Message<?> message) {
+        Object body = message.getBody();
+        if (body != null && !(body instanceof ResponderUpdatedEvent) && !(body instanceof RespondersCreatedEvent)
+                && !(body instanceof RespondersDeletedEvent)) {
+            throw new IllegalArgumentException("No serializer for message body " + body.getClass().getName());
+        }
+        Output output = outputs.get();
+        try {
+            output.buffer.reset();
+            write(output.generator, message);
+            output.generator.flush();
+            return output.buffer.toByteArray();
+        } catch (IOException e) {
+            // not thrown when writing to memory
+            outputs.remove();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            outputs.remove();
+            throw e;
+        }
+    }
+
+    private static void write(JsonGenerator generator, Message<?> message) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", message.getId());
+        generator.writeStringField("messageType", message.getMessageType());
+        generator.writeStringField("invokingService", message.getInvokingService());
+        generator.writeNumberField("timestamp", message.getTimestamp());
+        generator.writeFieldName("header");
+        writeHeader(generator, message.getHeader());
+        generator.writeFieldName("body");
+        Object body = message.getBody();
+        if (body == null) {
+            generator.writeNull();
+        } else if (body instanceof ResponderUpdatedEvent) {
+            writeResponderUpdated(generator, (ResponderUpdatedEvent) body);
+        } else if (body instanceof RespondersCreatedEvent) {
+            RespondersCreatedEvent event = (RespondersCreatedEvent) body;
+            generator.writeStartObject();
+            generator.writeNumberField("created", event.getCreated());
+            writeIds(generator, event.getResponders());
+            generator.writeEndObject();
+        } else {
+            RespondersDeletedEvent event = (RespondersDeletedEvent) body;
+            generator.writeStartObject();
+            generator.writeNumberField("deleted", event.getDeleted());
+            writeIds(generator, event.getResponders());
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeHeader(JsonGenerator generator, Map<String, String> header) throws IOException {
+        if (header == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject();
+        for (Map.Entry<String, String> entry : header.entrySet()) {
+            generator.writeStringField(entry.getKey(), entry.getValue());
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeResponderUpdated(JsonGenerator generator, ResponderUpdatedEvent event) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("status", event.getStatus());
+        generator.writeStringField("statusMessage", event.getStatusMessage());
+        generator.writeFieldName("responder");
+        Responder responder = event.getResponder();
+        if (responder == null) {
+            generator.writeNull();
+        } else {
+            generator.writeStartObject();
+            generator.writeStringField("id", responder.getId());
+            generator.writeStringField("name", responder.getName());
+            generator.writeStringField("phoneNumber", responder.getPhoneNumber());
+            generator.writeNumberField("latitude", responder.getLatitude());
+            generator.writeNumberField("longitude", responder.getLongitude());
+            writeInteger(generator, "boatCapacity", responder.getBoatCapacity());
+            writeBoolean(generator, "medicalKit", responder.isMedicalKit());
+            writeBoolean(generator, "available", responder.isAvailable());
+            writeBoolean(generator, "person", responder.isPerson());
+            writeBoolean(generator, "enrolled", responder.isEnrolled());
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeIds(JsonGenerator generator, Long[] ids) throws IOException {
+        generator.writeFieldName("responders");
+        if (ids == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (Long id : ids) {
+            if (id == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(id);
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeInteger(JsonGenerator generator, String field, Integer value) throws IOException {
+        generator.writeFieldName(field);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+
+    private static void writeBoolean(JsonGenerator generator, String field, Boolean value) throws IOException {
+        generator.writeFieldName(field);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeBoolean(value);
+        }
+    }
+
+    // a generator per thread which stays open, its buffer is reset after each message
+    private static class Output {
+
+        private final ByteArrayBuilder buffer = new ByteArrayBuilder(1024);
+
+        private final JsonGenerator generator;
+
+        Output() {
+            try {
+                generator = factory.createGenerator(buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.redhat.erdemo.responder.model;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class TrackPoint {
+
+    private final BigDecimal latitude;
+    private final BigDecimal longitude;
+    private final long timestamp;
+
+    public TrackPoint(BigDecimal latitude, BigDecimal longitude, long timestamp) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timestamp = timestamp;
+    }
+
+    public BigDecimal getLatitude() {
+        return latitude;
+    }
+
+    public BigDecimal getLongitude() {
+        return longitude;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TrackPoint that = (TrackPoint) o;
+        return timestamp == that.timestamp &&
+                Objects.equals(latitude, that.latitude) &&
+                Objects.equals(longitude, that.longitude);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(latitude, longitude, timestamp);
+    }
+
+    @Override
+    public String toString() {
+        return "TrackPoint{" +
+                "latitude=" + latitude +
+                ", longitude=" + longitude +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
@@ -0,0 +1,63 @@
+package com.redhat.erdemo.responder.repository;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+@Entity
+@Access(AccessType.FIELD)
+@SequenceGenerator(name="OutboxEventSeq", sequenceName="outbox_event_sequence", allocationSize = 50)
+@Table(name = "outbox_event")
+@NamedQueries({
+        @NamedQuery(name = "OutboxEvent.findAll", query = "SELECT e FROM OutboxEventEntity e ORDER BY e.id"),
+        @NamedQuery(name = "OutboxEvent.delete", query = "DELETE FROM OutboxEventEntity e WHERE e.id IN :ids"),
+        @NamedQuery(name = "OutboxEvent.count", query = "SELECT COUNT(e.id) FROM OutboxEventEntity e")
+})
+public class OutboxEventEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "OutboxEventSeq")
+    private long id;
+
+    @Column(name = "message_key")
+    private String key;
+
+    @Column(name = "payload", length = 65535)
+    private String payload;
+
+    @Column(name = "created_at")
+    private long createdAt;
+
+    OutboxEventEntity() {
+    }
+
+    public OutboxEventEntity(String key, String payload, long createdAt) {
+        this.key = key;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
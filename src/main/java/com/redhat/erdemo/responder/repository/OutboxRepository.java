@@ -0,0 +1,46 @@
+package com.redhat.erdemo.responder.repository;
+
+import java.util.List;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.transaction.Transactional;
+
+import org.hibernate.LockOptions;
+
+@ApplicationScoped
+public class OutboxRepository {
+
+    @Inject
+    EntityManager entityManager;
+
+    // the event is only stored together with the changes of the calling transaction
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void add(String key, String payload) {
+        entityManager.persist(new OutboxEventEntity(key, payload, System.currentTimeMillis()));
+    }
+
+    /**
+     * Locks and returns the oldest events, in insertion order. Events locked by another relay are skipped
+     * (<code>FOR UPDATE SKIP LOCKED</code> on PostgreSQL, a plain <code>FOR UPDATE</code> on databases without it).
+     */
+    public List<OutboxEventEntity> nextBatch(int limit) {
+        return entityManager.createNamedQuery("OutboxEvent.findAll", OutboxEventEntity.class)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint("javax.persistence.lock.timeout", LockOptions.SKIP_LOCKED)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    public int delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createNamedQuery("OutboxEvent.delete").setParameter("ids", ids).executeUpdate();
+    }
+
+    public long count() {
+        return (long) entityManager.createNamedQuery("OutboxEvent.count").getSingleResult();
+    }
+}
@@ -0,0 +1,44 @@
+package com.redhat.erdemo.responder.repository;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+@Entity
+@Access(AccessType.FIELD)
+@Table(name = "processed_message", indexes = @Index(name = "processed_message_processed_at", columnList = "processed_at"))
+@NamedQueries({
+        @NamedQuery(name = "ProcessedMessage.processedSince", query = "SELECT m FROM ProcessedMessageEntity m WHERE m.processedAt >= :since ORDER BY m.processedAt DESC"),
+        @NamedQuery(name = "ProcessedMessage.deleteBefore", query = "DELETE FROM ProcessedMessageEntity m WHERE m.processedAt < :before")
+})
+public class ProcessedMessageEntity {
+
+    @Id
+    @Column(name = "message_id")
+    private String messageId;
+
+    @Column(name = "processed_at")
+    private long processedAt;
+
+    ProcessedMessageEntity() {
+    }
+
+    public ProcessedMessageEntity(String messageId, long processedAt) {
+        this.messageId = messageId;
+        this.processedAt = processedAt;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public long getProcessedAt() {
+        return processedAt;
+    }
+}
@@ -0,0 +1,30 @@
+package com.redhat.erdemo.responder.repository;
+
+import java.util.List;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+@ApplicationScoped
+public class ProcessedMessageRepository {
+
+    @Inject
+    EntityManager entityManager;
+
+    public void save(String messageId, long processedAt) {
+        entityManager.merge(new ProcessedMessageEntity(messageId, processedAt));
+    }
+
+    /**
+     * @return the messages processed at or after <code>since</code>, newest first.
+     */
+    public List<ProcessedMessageEntity> processedSince(long since, int limit) {
+        return entityManager.createNamedQuery("ProcessedMessage.processedSince", ProcessedMessageEntity.class)
+                .setParameter("since", since).setMaxResults(limit).getResultList();
+    }
+
+    public int deleteBefore(long before) {
+        return entityManager.createNamedQuery("ProcessedMessage.deleteBefore")
+                .setParameter("before", before).executeUpdate();
+    }
+}
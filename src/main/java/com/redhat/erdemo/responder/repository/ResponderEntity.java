@@ -20,16 +20,19 @@ import javax.persistence.Version;
 @Table(name = "Responder")
 @NamedQueries({
         @NamedQuery(name = "Responder.allResponders", query = "SELECT r FROM ResponderEntity r"),
+        @NamedQuery(name = "Responder.findByIds", query = "SELECT r FROM ResponderEntity r WHERE r.id IN :ids"),
         @NamedQuery(name = "Responder.findByName", query = "SELECT r FROM ResponderEntity r WHERE r.name = :name"),
         @NamedQuery(name = "Responder.availableResponders", query = "SELECT r FROM ResponderEntity r WHERE r.available = true and r.enrolled = true"),
         @NamedQuery(name = "Responder.availableRespondersOrderedByPerson", query = "SELECT r FROM ResponderEntity r WHERE r.available = true and r.enrolled = true ORDER BY r.person DESC NULLS LAST, r.id ASC"),
         @NamedQuery(name = "Responder.persons", query = "SELECT r FROM ResponderEntity r where r.person = true"),
         @NamedQuery(name = "Responder.nonPersons", query = "SELECT r from ResponderEntity r where r.person = false"),
+        @NamedQuery(name = "Responder.availability", query = "SELECT r.id, r.available FROM ResponderEntity r"),
         @NamedQuery(name = "Responder.countEnrolled", query = "SELECT COUNT(r.id) FROM ResponderEntity r WHERE r.enrolled = true"),
         @NamedQuery(name = "Responder.countActive", query = "SELECT COUNT(r.id) FROM ResponderEntity r WHERE r.enrolled = true AND r.available = false"),
         @NamedQuery(name = "Responder.deleteAll", query = "DELETE FROM ResponderEntity"),
         @NamedQuery(name = "Responder.deleteNonPersons", query = "DELETE FROM ResponderEntity r where r.person = false"),
         @NamedQuery(name = "Responder.clearNonPersons", query = "UPDATE ResponderEntity r SET r.available = false, r.enrolled = false WHERE r.person = false"),
+        @NamedQuery(name = "Responder.updateLocation", query = "UPDATE ResponderEntity r SET r.currentPositionLatitude = :latitude, r.currentPositionLongitude = :longitude, r.version = r.version + 1 WHERE r.id = :id AND r.available = false"),
         @NamedQuery(name = "Responder.reset", query = "UPDATE ResponderEntity r SET r.available = true, r.enrolled = false WHERE r.person = false"),
         @NamedQuery(name = "Responder.resetPerson", query = "UPDATE ResponderEntity r SET r.available = true, r.enrolled = false, currentPositionLatitude = null,  currentPositionLongitude = null WHERE r.person = true")
 })
@@ -1,11 +1,19 @@
 package com.redhat.erdemo.responder.repository;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.LockModeType;
 import javax.persistence.NonUniqueResultException;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.TypedQuery;
 
 import org.apache.commons.lang3.tuple.ImmutableTriple;
@@ -30,6 +38,15 @@ public class ResponderRepository {
         return entityManager.find(ResponderEntity.class, id, LockModeType.OPTIMISTIC);
     }
 
+    public Map<Long, ResponderEntity> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return entityManager.createNamedQuery("Responder.findByIds", ResponderEntity.class)
+                .setParameter("ids", ids).setLockMode(LockModeType.OPTIMISTIC).getResultStream()
+                .collect(Collectors.toMap(ResponderEntity::getId, Function.identity()));
+    }
+
     public ResponderEntity findByName(String name) {
         List<ResponderEntity> results = entityManager.createNamedQuery("Responder.findByName", ResponderEntity.class)
                 .setParameter("name", name).getResultList();
@@ -57,6 +74,9 @@ public class ResponderRepository {
             toUpdate.update(responder);
             entityManager.flush();
             return new ImmutableTriple<>(true, "Responder updated", toUpdate);
+        } catch (OptimisticLockException e) {
+            // the transaction is marked for rollback, the caller can retry in a new transaction
+            throw e;
         } catch (Exception e) {
             log.warn("Exception '" + e.getClass() + "' when updating Responder with id '" + responder.getId() + "'. Responder record is not updated.");
             return new ImmutableTriple<>(false, "Exception '" + e.getClass() + "' when updating Responder", responder);
@@ -64,6 +84,37 @@ public class ResponderRepository {
 
     }
 
+    // loads all responders with one query and flushes once, a failed flush fails the whole batch
+    public List<Triple<Boolean, String, ResponderEntity>> updateAll(List<ResponderEntity> responders) {
+
+        Map<Long, ResponderEntity> current = findByIds(responders.stream().map(ResponderEntity::getId).collect(Collectors.toSet()));
+        List<Triple<Boolean, String, ResponderEntity>> results = new ArrayList<>();
+        for (ResponderEntity responder : responders) {
+            ResponderEntity toUpdate = current.get(responder.getId());
+            if (toUpdate == null) {
+                log.warn("Responder with id '" + responder.getId() + "' not found in the database");
+                results.add(new ImmutableTriple<>(false, "Responder with id + " + responder.getId() + " not found.", null));
+            } else if (!stateChanged(toUpdate, responder)) {
+                results.add(new ImmutableTriple<>(false, "Responder state not changed", responder));
+            } else {
+                toUpdate.update(responder);
+                results.add(new ImmutableTriple<>(true, "Responder updated", new ResponderEntity.Builder(toUpdate).build()));
+            }
+        }
+        entityManager.flush();
+        return results;
+    }
+
+    // single statement, only applies to responders which are not available, i.e. during a mission
+    public boolean updateLocation(long id, BigDecimal latitude, BigDecimal longitude) {
+        int updated = entityManager.createNamedQuery("Responder.updateLocation")
+                .setParameter("latitude", latitude)
+                .setParameter("longitude", longitude)
+                .setParameter("id", id)
+                .executeUpdate();
+        return updated == 1;
+    }
+
     public List<ResponderEntity> availableResponders() {
         return entityManager.createNamedQuery("Responder.availableResponders", ResponderEntity.class)
                 .getResultList();
@@ -108,6 +159,11 @@ public class ResponderRepository {
         return entityManager.createNamedQuery("Responder.nonPersons", ResponderEntity.class).getResultList();
     }
 
+    public Map<Long, Boolean> availabilityById() {
+        return entityManager.createNamedQuery("Responder.availability", Object[].class).getResultStream()
+                .collect(Collectors.toMap(r -> (Long) r[0], r -> Boolean.TRUE.equals(r[1])));
+    }
+
     public void reset() {
         entityManager.createNamedQuery("Responder.reset").executeUpdate();
         entityManager.createNamedQuery("Responder.resetPerson").executeUpdate();
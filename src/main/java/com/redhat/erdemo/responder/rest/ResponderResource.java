@@ -16,7 +16,10 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
 import com.redhat.erdemo.responder.model.Responder;
+import com.redhat.erdemo.responder.model.TrackPoint;
 import com.redhat.erdemo.responder.service.ResponderService;
+import com.redhat.erdemo.responder.service.ResponderTrackStore;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 @Path("/")
 public class ResponderResource {
@@ -24,6 +27,12 @@ public class ResponderResource {
     @Inject
     ResponderService responderService;
 
+    @Inject
+    ResponderTrackStore trackStore;
+
+    @ConfigProperty(name = "responder.nearest.max-k", defaultValue = "100")
+    int maxNearest;
+
     @GET
     @Path("/stats")
     @Produces(MediaType.APPLICATION_JSON)
@@ -43,6 +52,18 @@ public class ResponderResource {
         }
     }
 
+    @GET
+    @Path("/responder/{id}/track")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response track(@PathParam("id") long id) {
+        List<TrackPoint> track = trackStore.isEnabled() ? trackStore.track(id) : null;
+        if (track == null) {
+            return Response.status(Status.NOT_FOUND).build();
+        } else {
+            return Response.ok(track).build();
+        }
+    }
+
     @GET
     @Path("/responder/byname/{name}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -73,6 +94,19 @@ public class ResponderResource {
         return Response.ok(responders).build();
     }
 
+    @GET
+    @Path("/responders/available/nearest")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response nearestAvailableResponders(@QueryParam("lat") Double latitude, @QueryParam("lon") Double longitude, @QueryParam("k") Optional<Integer> k) {
+        int count = k.orElse(5);
+        // NaN fails every range check, so the comparisons are negated
+        if (latitude == null || longitude == null || !(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)
+                || count < 1 || count > maxNearest) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+        return Response.ok(responderService.nearestAvailableResponders(latitude, longitude, count)).build();
+    }
+
     @GET
     @Path("/responders")
     @Produces(MediaType.APPLICATION_JSON)
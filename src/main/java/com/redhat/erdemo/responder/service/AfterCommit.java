@@ -0,0 +1,56 @@
+package com.redhat.erdemo.responder.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Actions which run once the current transaction has committed, and are discarded when it rolls back. Without a
+ * transaction, an action runs at once.
+ */
+class AfterCommit implements Synchronization {
+
+    private static final Logger log = LoggerFactory.getLogger(AfterCommit.class);
+
+    private final List<Runnable> actions = new ArrayList<>();
+
+    static void run(TransactionSynchronizationRegistry transactionRegistry, Runnable action) {
+        int status = transactionRegistry.getTransactionStatus();
+        if (status == Status.STATUS_NO_TRANSACTION) {
+            action.run();
+            return;
+        }
+        if (status == Status.STATUS_MARKED_ROLLBACK) {
+            return;
+        }
+        AfterCommit afterCommit = (AfterCommit) transactionRegistry.getResource(AfterCommit.class);
+        if (afterCommit == null) {
+            afterCommit = new AfterCommit();
+            transactionRegistry.putResource(AfterCommit.class, afterCommit);
+            transactionRegistry.registerInterposedSynchronization(afterCommit);
+        }
+        afterCommit.actions.add(action);
+    }
+
+    @Override
+    public void beforeCompletion() {}
+
+    @Override
+    public void afterCompletion(int status) {
+        if (status != Status.STATUS_COMMITTED) {
+            return;
+        }
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                log.error("Error running action after commit", e);
+            }
+        }
+    }
+}
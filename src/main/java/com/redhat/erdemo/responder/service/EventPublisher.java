@@ -1,48 +1,142 @@
 package com.redhat.erdemo.responder.service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.TransactionSynchronizationRegistry;
 
+import com.redhat.erdemo.responder.message.EventCodec;
+import com.redhat.erdemo.responder.message.JsonEventCodec;
 import com.redhat.erdemo.responder.message.Message;
+import com.redhat.erdemo.responder.message.MessageSerializer;
 import com.redhat.erdemo.responder.message.ResponderUpdatedEvent;
 import com.redhat.erdemo.responder.message.RespondersCreatedEvent;
 import com.redhat.erdemo.responder.message.RespondersDeletedEvent;
 import com.redhat.erdemo.responder.model.Responder;
+import com.redhat.erdemo.responder.repository.OutboxRepository;
 import io.smallrye.mutiny.Multi;
-import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
 import io.smallrye.reactive.messaging.kafka.KafkaRecord;
-import io.vertx.core.json.Json;
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
 import org.eclipse.microprofile.reactive.messaging.Outgoing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Publishes responder events to the <code>responder-event</code> channel. With <code>responder.event.outbox.enabled</code>
+ * the created and deleted events are written to the outbox table in the calling transaction instead, and sent
+ * by the <code>OutboxRelay</code> once committed.
+ * Events wait for the channel in a bounded queue, see {@link EventQueue} for the overflow policies.
+ * The events are encoded with the {@link EventCodec} named by <code>responder.event.codec</code>, the outbox always
+ * stores JSON.
+ * Events of a transaction are buffered and sent together once the transaction has committed, the events of a rolled
+ * back transaction are discarded.
+ */
 @ApplicationScoped
 public class EventPublisher {
 
     private static final Logger log = LoggerFactory.getLogger(EventPublisher.class);
 
-    private final UnicastProcessor<Pair<String, Message<?>>> processor = UnicastProcessor.create();
+    // transaction resource key of the events sent in the transaction
+    private static final Object TRANSACTION_EVENTS = new Object();
+
+    @ConfigProperty(name = "responder.event.outbox.enabled", defaultValue = "false")
+    boolean outboxEnabled;
+
+    @ConfigProperty(name = "responder.event.chunk-size", defaultValue = "1000")
+    int chunkSize;
+
+    @ConfigProperty(name = "responder.event.queue.capacity", defaultValue = "10000")
+    int queueCapacity;
+
+    @ConfigProperty(name = "responder.event.queue.overflow", defaultValue = "block")
+    String queueOverflow;
+
+    @ConfigProperty(name = "responder.event.queue.block-timeout-ms", defaultValue = "10000")
+    long queueBlockTimeoutMs;
+
+    @ConfigProperty(name = "responder.event.codec", defaultValue = "json")
+    String codecName;
+
+    @Inject
+    OutboxRepository outbox;
+
+    @Inject
+    @Any
+    Instance<EventCodec> codecs;
+
+    private EventCodec codec;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    private EventQueue<org.eclipse.microprofile.reactive.messaging.Message<byte[]>> queue;
+
+    @PostConstruct
+    void init() {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("responder.event.chunk-size must be at least 1, was " + chunkSize);
+        }
+        codec = codecs.stream().filter(c -> c.name().equals(codecName)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown responder event codec '" + codecName + "'"));
+        queue = new EventQueue<>(queueCapacity, EventQueue.Overflow.of(queueOverflow), queueBlockTimeoutMs,
+                metricRegistry.timer(Metadata.builder().withName("responder.event.queue.wait").withType(MetricType.TIMER)
+                        .withDescription("Time waited for a free slot in the event queue").build()),
+                metricRegistry.counter(Metadata.builder().withName("responder.event.queue.dropped").withType(MetricType.COUNTER)
+                        .withDescription("Number of events dropped or rejected because the event queue was full").build()),
+                m -> m.nack(new IllegalStateException("Responder event queue is full, oldest event dropped")));
+        metricRegistry.register(Metadata.builder().withName("responder.event.queue.depth").withType(MetricType.GAUGE)
+                .withDescription("Number of events waiting in the event queue").build(), (Gauge<Integer>) queue::size);
+    }
+
+    public boolean isOutboxEnabled() {
+        return outboxEnabled;
+    }
 
     public void responderCreated(Long id) {
         Message<RespondersCreatedEvent> message = new Message.Builder<>("RespondersCreatedEvent", "ResponderService",
                 new RespondersCreatedEvent.Builder(new Long[]{id}).build()).build();
-        processor.onNext(ImmutablePair.of(Integer.toString(id.hashCode()), message));
+        emit(Integer.toString(id.hashCode()), message, outboxEnabled);
     }
 
     public void respondersCreated(List<Long> ids) {
-        Message<RespondersCreatedEvent> message = new Message.Builder<>("RespondersCreatedEvent", "ResponderService",
-                new RespondersCreatedEvent.Builder(ids.toArray(new Long[0])).build()).build();
-        processor.onNext(ImmutablePair.of(Integer.toString(ids.hashCode()), message));
+        Chunked created = respondersCreated(ids.size());
+        ids.forEach(created::add);
+        created.complete();
+    }
+
+    /**
+     * Starts a RespondersCreatedEvent for a bulk operation which creates <code>count</code> responders, see {@link Chunked}.
+     */
+    public Chunked respondersCreated(int count) {
+        return new Chunked("RespondersCreatedEvent", count);
     }
 
     public void respondersDeleted(List<Long> ids) {
-        Message<RespondersDeletedEvent> message = new Message.Builder<>("RespondersDeletedEvent", "ResponderService",
-                new RespondersDeletedEvent.Builder(ids.toArray(new Long[0])).build()).build();
-        processor.onNext(ImmutablePair.of(Integer.toString(ids.hashCode()), message));
+        Chunked deleted = respondersDeleted(ids.size());
+        ids.forEach(deleted::add);
+        deleted.complete();
+    }
+
+    public Chunked respondersDeleted(int count) {
+        return new Chunked("RespondersDeletedEvent", count);
     }
 
     public void responderUpdated(Triple<Boolean, String, Responder> status, Map<String, String> context) {
@@ -50,19 +144,129 @@ public class EventPublisher {
                 new ResponderUpdatedEvent.Builder(status.getLeft() ? "success" : "error", status.getRight())
                         .statusMessage(status.getMiddle()).build());
         context.forEach(builder::header);
-        processor.onNext(ImmutablePair.of(status.getRight().getId(), builder.build()));
+        emit(status.getRight().getId(), builder.build(), false);
+    }
+
+    /**
+     * Sends an event already encoded as JSON.
+     *
+     * @return completed when the event is acknowledged by the channel, failed when the event queue is full.
+     */
+    public CompletionStage<Void> publish(String key, String payload) {
+        CompletableFuture<Void> acked = new CompletableFuture<>();
+        try {
+            queue.offer(KafkaRecord.of(key, payload.getBytes(StandardCharsets.UTF_8))
+                    .withHeader(EventCodec.HEADER, JsonEventCodec.CONTENT_TYPE)
+                    .withAck(() -> {
+                        acked.complete(null);
+                        return CompletableFuture.completedFuture(null);
+                    })
+                    .withNack(t -> {
+                        acked.completeExceptionally(t);
+                        return CompletableFuture.completedFuture(null);
+                    }));
+        } catch (IllegalStateException e) {
+            acked.completeExceptionally(e);
+        }
+        return acked;
     }
 
     @Outgoing("responder-event")
-    public Multi<org.eclipse.microprofile.reactive.messaging.Message<String>> responderEvent() {
-        return processor.onItem().transform(this::toMessage);
+    public Multi<org.eclipse.microprofile.reactive.messaging.Message<byte[]>> responderEvent() {
+        return Multi.createFrom().publisher(queue);
     }
 
-    private org.eclipse.microprofile.reactive.messaging.Message<String> toMessage(Pair<String, Message<?>> pair) {
+    private void emit(String key, Message<?> message, boolean toOutbox) {
+        if (toOutbox) {
+            outbox.add(key, new String(MessageSerializer.serialize(message), StandardCharsets.UTF_8));
+            log.debug("Event '" + message.getMessageType() + "' with key '" + key + "' added to the outbox");
+        } else {
+            send(KafkaRecord.of(key, codec.encode(message)).withHeader(EventCodec.HEADER, codec.contentType()));
+        }
+    }
+
+    private void send(org.eclipse.microprofile.reactive.messaging.Message<byte[]> record) {
+        // without a transaction, a full queue is reported to the caller
+        if (transactionRegistry.getTransactionStatus() == Status.STATUS_NO_TRANSACTION) {
+            queue.offer(record);
+            return;
+        }
+        // the events of one transaction, offered together once it committed
+        @SuppressWarnings("unchecked")
+        List<org.eclipse.microprofile.reactive.messaging.Message<byte[]>> records =
+                (List<org.eclipse.microprofile.reactive.messaging.Message<byte[]>>) transactionRegistry.getResource(TRANSACTION_EVENTS);
+        if (records == null) {
+            List<org.eclipse.microprofile.reactive.messaging.Message<byte[]>> events = new ArrayList<>();
+            transactionRegistry.putResource(TRANSACTION_EVENTS, events);
+            AfterCommit.run(transactionRegistry, () -> offerAll(events));
+            records = events;
+        }
+        records.add(record);
+    }
 
-        return KafkaRecord.of(pair.getLeft(), Json.encode(pair.getRight()));
+    private void offerAll(List<org.eclipse.microprofile.reactive.messaging.Message<byte[]>> records) {
+        try {
+            queue.offerAll(records);
+        } catch (IllegalStateException e) {
+            log.error("Events of a committed transaction not sent: " + e.getMessage());
+        }
     }
 
+    /**
+     * Responder ids of a bulk operation, sent as they are added in events of at most <code>chunk-size</code> ids.
+     * All chunks have the same key and carry the <code>chunkGroup</code>, <code>chunkSequence</code> (from 1) and
+     * <code>chunkTotal</code> headers, so consumers can process them as they arrive. Like all events, the chunks of a
+     * transaction are only sent once it has committed.
+     */
+    public class Chunked {
+
+        private final String messageType;
 
+        private final String group = UUID.randomUUID().toString();
 
+        private final int total;
+
+        private int sequence;
+
+        private String key;
+
+        private List<Long> ids = new ArrayList<>();
+
+        private Chunked(String messageType, int count) {
+            this.messageType = messageType;
+            this.total = Math.max(1, (count + chunkSize - 1) / chunkSize);
+        }
+
+        public void add(Long id) {
+            ids.add(id);
+            if (ids.size() >= chunkSize) {
+                send();
+            }
+        }
+
+        /**
+         * Sends the last chunk. Not called when the bulk operation fails, so no event is sent for the remaining ids.
+         */
+        public void complete() {
+            if (!ids.isEmpty() || sequence == 0) {
+                send();
+            }
+        }
+
+        private void send() {
+            sequence++;
+            if (key == null) {
+                key = Integer.toString(ids.hashCode());
+            }
+            Long[] responders = ids.toArray(new Long[0]);
+            Message.Builder<?> builder = "RespondersCreatedEvent".equals(messageType)
+                    ? new Message.Builder<>(messageType, "ResponderService", new RespondersCreatedEvent.Builder(responders).build())
+                    : new Message.Builder<>(messageType, "ResponderService", new RespondersDeletedEvent.Builder(responders).build());
+            builder.header("chunkGroup", group)
+                    .header("chunkSequence", Integer.toString(sequence))
+                    .header("chunkTotal", Integer.toString(Math.max(total, sequence)));
+            emit(key, builder.build(), outboxEnabled);
+            ids = new ArrayList<>();
+        }
+    }
 }
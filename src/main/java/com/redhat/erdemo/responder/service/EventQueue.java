@@ -0,0 +1,201 @@
+package com.redhat.erdemo.responder.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import io.smallrye.mutiny.helpers.queues.MpscLinkedQueue;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Timer;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Bounded multi-producer queue which emits its items to a single subscriber as requested. Producers never take a lock:
+ * a slot is reserved with a CAS on the size and the item is added to a lock-free MPSC queue. Items are emitted by
+ * whichever thread wins the drain, so <code>onNext</code> is never called concurrently.
+ * When the queue is full, the overflow policy decides: {@link Overflow#BLOCK} waits up to the block timeout for a free
+ * slot, {@link Overflow#DROP_OLDEST} drops the oldest queued item and hands it to the drop handler, and
+ * {@link Overflow#FAIL} rejects the new item.
+ */
+class EventQueue<T> implements Publisher<T> {
+
+    enum Overflow {
+        BLOCK, DROP_OLDEST, FAIL;
+
+        static Overflow of(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final MpscLinkedQueue<T> queue = new MpscLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private final AtomicLong requested = new AtomicLong();
+
+    private final AtomicReference<Subscriber<? super T>> subscriber = new AtomicReference<>();
+
+    private final int capacity;
+
+    private final Overflow overflow;
+
+    private final long blockTimeoutNanos;
+
+    private final Timer waits;
+
+    private final Counter dropped;
+
+    private final Consumer<T> dropHandler;
+
+    EventQueue(int capacity, Overflow overflow, long blockTimeoutMs, Timer waits, Counter dropped, Consumer<T> dropHandler) {
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.waits = waits;
+        this.dropped = dropped;
+        this.dropHandler = dropHandler;
+    }
+
+    /**
+     * @throws IllegalStateException when the queue is full and the item is rejected.
+     */
+    void offer(T item) {
+        add(item);
+        drain();
+    }
+
+    /**
+     * Adds the items in order and emits them with a single drain.
+     *
+     * @throws IllegalStateException when the queue is full and an item is rejected, the items before it are kept.
+     */
+    void offerAll(List<T> items) {
+        try {
+            items.forEach(this::add);
+        } finally {
+            drain();
+        }
+    }
+
+    private void add(T item) {
+        if (overflow == Overflow.DROP_OLDEST) {
+            // the oldest items are dropped by the drain, which is the only consumer of the queue
+            size.incrementAndGet();
+        } else if (!reserve()) {
+            if (overflow == Overflow.FAIL || !awaitSlot()) {
+                dropped.inc();
+                throw new IllegalStateException("Responder event queue is full, capacity " + capacity);
+            }
+        }
+        queue.offer(item);
+    }
+
+    int size() {
+        return Math.min(size.get(), capacity);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> s) {
+        if (!subscriber.compareAndSet(null, s)) {
+            s.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {}
+
+                @Override
+                public void cancel() {}
+            });
+            s.onError(new IllegalStateException("Responder event queue allows only one subscriber"));
+            return;
+        }
+        s.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    cancel();
+                    s.onError(new IllegalArgumentException("Invalid request " + n));
+                    return;
+                }
+                requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                if (subscriber.compareAndSet(s, null)) {
+                    requested.set(0);
+                }
+            }
+        });
+    }
+
+    private boolean reserve() {
+        int current;
+        do {
+            current = size.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private boolean awaitSlot() {
+        long start = System.nanoTime();
+        try {
+            while (!reserve()) {
+                if (System.nanoTime() - start > blockTimeoutNanos || Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+            return true;
+        } finally {
+            waits.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            if (overflow == Overflow.DROP_OLDEST) {
+                T item;
+                while (size.get() > capacity && (item = queue.poll()) != null) {
+                    size.decrementAndGet();
+                    dropped.inc();
+                    dropHandler.accept(item);
+                }
+            }
+            Subscriber<? super T> s = subscriber.get();
+            if (s != null) {
+                long r = requested.get();
+                long emitted = 0;
+                while (emitted != r) {
+                    T item = queue.poll();
+                    if (item == null) {
+                        break;
+                    }
+                    size.decrementAndGet();
+                    s.onNext(item);
+                    emitted++;
+                }
+                if (emitted != 0 && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
@@ -0,0 +1,229 @@
+package com.redhat.erdemo.responder.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+
+import com.redhat.erdemo.responder.model.Responder;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.apache.commons.lang3.tuple.Triple;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies concurrent responder updates in one transaction. A single writer thread takes the first pending update and
+ * collects what arrives within <code>window-ms</code>, up to <code>max-size</code> updates for different responders,
+ * commits them together and then completes each caller's future. An update for a responder which is already part of
+ * the group waits for the next group, so the updates of a responder are applied in order.
+ * When the group transaction fails, its updates are applied one by one. A caller waits at most <code>timeout-ms</code>,
+ * an update which is still queued then is not applied anymore.
+ * Location updates do not go through the group commit, so a burst of them never delays the updates of an incident.
+ */
+@ApplicationScoped
+public class GroupCommitWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitWriter.class);
+
+    @ConfigProperty(name = "responder.group-commit.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "responder.group-commit.window-ms", defaultValue = "2")
+    long windowMs;
+
+    @ConfigProperty(name = "responder.group-commit.max-size", defaultValue = "100")
+    int maxSize;
+
+    @ConfigProperty(name = "responder.group-commit.timeout-ms", defaultValue = "10000")
+    long timeoutMs;
+
+    @Inject
+    ResponderService responderService;
+
+    @Inject
+    OptimisticLockRetry retry;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    Histogram groupSize;
+
+    private final LinkedBlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+
+    // writes for a responder which was already part of the group being collected
+    private final ArrayDeque<Write> deferred = new ArrayDeque<>();
+
+    private Thread writer;
+
+    @PostConstruct
+    void init() {
+        groupSize = metricRegistry.histogram(Metadata.builder().withName("responder.group-commit.size")
+                .withType(MetricType.HISTOGRAM).withDescription("Number of responder writes per transaction").build());
+        if (enabled) {
+            writer = new Thread(this::run, "responder-group-commit");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (writer != null) {
+            writer.interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @throws IllegalStateException when the update is not applied within <code>timeout-ms</code>.
+     */
+    public Triple<Boolean, String, Responder> update(Responder responder, List<String> messageIds) {
+        Write write = new Write(responder, messageIds);
+        queue.add(write);
+        try {
+            write.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // rethrown below
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // a cancelled write is skipped when it is collected, unless it is already part of a group
+            if (write.result.cancel(false)) {
+                throw new IllegalStateException("Update of responder with id '" + responder.getId() + "' not applied within "
+                        + timeoutMs + " ms");
+            }
+        }
+        try {
+            return write.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Write> group;
+            try {
+                group = collect();
+            } catch (InterruptedException e) {
+                break;
+            }
+            groupSize.update(group.size());
+            apply(group);
+        }
+        List<Write> remaining = new ArrayList<>(deferred);
+        queue.drainTo(remaining);
+        remaining.forEach(w -> w.result.completeExceptionally(new IllegalStateException("Group commit writer stopped")));
+    }
+
+    List<Write> collect() throws InterruptedException {
+        List<Write> group = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        Iterator<Write> it = deferred.iterator();
+        while (it.hasNext() && group.size() < maxSize) {
+            Write write = it.next();
+            if (write.result.isCancelled()) {
+                it.remove();
+            } else if (ids.add(write.responder.getId())) {
+                group.add(write);
+                it.remove();
+            }
+        }
+        while (group.isEmpty()) {
+            Write first = queue.take();
+            if (!first.result.isCancelled()) {
+                ids.add(first.responder.getId());
+                group.add(first);
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+        while (group.size() < maxSize) {
+            Write write = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (write == null) {
+                break;
+            }
+            if (write.result.isCancelled()) {
+                continue;
+            }
+            if (ids.add(write.responder.getId())) {
+                group.add(write);
+            } else {
+                deferred.add(write);
+            }
+        }
+        return group;
+    }
+
+    private void apply(List<Write> group) {
+        List<Triple<Boolean, String, Responder>> results;
+        try {
+            results = retry.execute("groupCommit", () -> write(group));
+        } catch (Exception e) {
+            log.warn("Exception '" + e.getClass() + "' when writing a group of " + group.size() + " responder updates. Applying the updates one by one.");
+            group.forEach(this::applyOne);
+            return;
+        }
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).result.complete(results.get(i));
+        }
+    }
+
+    private void applyOne(Write write) {
+        try {
+            write.result.complete(responderService.updateResponderWithRetry(write.responder, write.messageIds));
+        } catch (RuntimeException e) {
+            if (OptimisticLockRetry.isConflict(e)) {
+                write.result.complete(ImmutableTriple.of(false, "Exception '" + e.getClass() + "' when updating Responder", write.responder));
+            } else {
+                write.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    // not private, so the transaction interceptor applies
+    @Transactional
+    List<Triple<Boolean, String, Responder>> write(List<Write> group) {
+        return responderService.updateRespondersInTransaction(group.stream().map(w -> w.responder).collect(Collectors.toList()),
+                group.stream().flatMap(w -> w.messageIds.stream()).collect(Collectors.toList()));
+    }
+
+    static class Write {
+
+        private final Responder responder;
+
+        private final List<String> messageIds;
+
+        private final CompletableFuture<Triple<Boolean, String, Responder>> result = new CompletableFuture<>();
+
+        Write(Responder responder, List<String> messageIds) {
+            this.responder = responder;
+            this.messageIds = messageIds;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.redhat.erdemo.responder.service;
+
+import java.util.List;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.redhat.erdemo.responder.model.Responder;
+import org.apache.commons.lang3.tuple.Triple;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drops location updates of a responder unless it moved at least <code>min-distance-m</code> metres or at least
+ * <code>min-interval-ms</code> passed since the last location that was persisted. The callers report the persisted
+ * locations with {@link #persisted(Triple)}, a location which was let through but not written does not count.
+ */
+@ApplicationScoped
+public class LocationThrottle {
+
+    private static final Logger log = LoggerFactory.getLogger(LocationThrottle.class);
+
+    private static final double EARTH_RADIUS_M = 6371000;
+
+    @ConfigProperty(name = "responder.location.throttle.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "responder.location.throttle.min-distance-m", defaultValue = "10")
+    double minDistance;
+
+    @ConfigProperty(name = "responder.location.throttle.min-interval-ms", defaultValue = "5000")
+    long minInterval;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    Counter applied;
+
+    Counter dropped;
+
+    private final PositionMap positions = new PositionMap(1024);
+
+    @PostConstruct
+    void init() {
+        applied = metricRegistry.counter(Metadata.builder().withName("responder.location.throttle.applied")
+                .withType(MetricType.COUNTER).withDescription("Number of location updates let through the throttle").build());
+        dropped = metricRegistry.counter(Metadata.builder().withName("responder.location.throttle.dropped")
+                .withType(MetricType.COUNTER).withDescription("Number of location updates dropped by the throttle").build());
+        if (enabled) {
+            log.info("Location throttle enabled. Min distance " + minDistance + " m, min interval " + minInterval + " ms");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean accept(long responderId, double latitude, double longitude) {
+        return accept(responderId, latitude, longitude, System.currentTimeMillis());
+    }
+
+    synchronized boolean accept(long responderId, double lat, double lon, long now) {
+        if (Double.isNaN(lat) || Double.isNaN(lon)) {
+            // rejected further down the pipeline, nothing to compare with
+            return true;
+        }
+        int index = positions.indexOf(responderId);
+        if (index >= 0 && now - positions.timestamp(index) < minInterval
+                && distance(positions.latitude(index), positions.longitude(index), lat, lon) < minDistance) {
+            dropped.inc();
+            return false;
+        }
+        applied.inc();
+        return true;
+    }
+
+    public void persisted(List<Triple<Boolean, String, Responder>> results) {
+        results.forEach(this::persisted);
+    }
+
+    /**
+     * Makes the location of a successful update the baseline for the next location updates of the responder.
+     */
+    public void persisted(Triple<Boolean, String, Responder> result) {
+        if (!enabled || result == null || !result.getLeft() || result.getRight() == null) {
+            return;
+        }
+        Responder responder = result.getRight();
+        if (responder.getLatitude() != null && responder.getLongitude() != null) {
+            persisted(Long.parseLong(responder.getId()), responder.getLatitude().doubleValue(),
+                    responder.getLongitude().doubleValue(), System.currentTimeMillis());
+        }
+    }
+
+    synchronized void persisted(long responderId, double latitude, double longitude, long now) {
+        positions.put(responderId, latitude, longitude, now);
+    }
+
+    public synchronized void clear() {
+        positions.clear();
+    }
+
+    // equirectangular approximation, accurate enough for the distances compared here
+    static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double x = Math.toRadians(lon2 - lon1) * Math.cos(Math.toRadians((lat1 + lat2) / 2));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_M;
+    }
+}
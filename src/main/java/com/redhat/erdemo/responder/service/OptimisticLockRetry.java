@@ -0,0 +1,95 @@
+package com.redhat.erdemo.responder.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.OptimisticLockException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.Meter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs an action again when it fails with an <code>OptimisticLockException</code>, at most <code>max-retries</code>
+ * times. Each retry waits a random time between 0 and <code>backoff-ms * 2^retry</code>, capped at
+ * <code>max-backoff-ms</code>. The action must run in its own transaction, so a retry reads the current state.
+ */
+@ApplicationScoped
+public class OptimisticLockRetry {
+
+    private static final Logger log = LoggerFactory.getLogger(OptimisticLockRetry.class);
+
+    @ConfigProperty(name = "responder.update.retry.max-retries", defaultValue = "3")
+    int maxRetries;
+
+    @ConfigProperty(name = "responder.update.retry.backoff-ms", defaultValue = "20")
+    long backoffMs;
+
+    @ConfigProperty(name = "responder.update.retry.max-backoff-ms", defaultValue = "500")
+    long maxBackoffMs;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    private final Map<String, Meter> conflicts = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> retries = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> exhausted = new ConcurrentHashMap<>();
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        for (int retry = 0; ; retry++) {
+            try {
+                return action.get();
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                conflicts.computeIfAbsent(operation, o -> metricRegistry.meter(Metadata.builder()
+                        .withName("responder.update.conflicts").withType(MetricType.METERED)
+                        .withDescription("Optimistic lock conflicts").build(), new Tag("operation", o))).mark();
+                if (retry >= maxRetries) {
+                    exhausted.computeIfAbsent(operation, o -> metricRegistry.counter(Metadata.builder()
+                            .withName("responder.update.retries.exhausted").withType(MetricType.COUNTER)
+                            .withDescription("Operations which still conflicted after all retries").build(), new Tag("operation", o))).inc();
+                    throw e;
+                }
+                retries.computeIfAbsent(operation, o -> metricRegistry.counter(Metadata.builder()
+                        .withName("responder.update.retries").withType(MetricType.COUNTER)
+                        .withDescription("Retries after an optimistic lock conflict").build(), new Tag("operation", o))).inc();
+                long backoff = backoff(retry);
+                log.debug("Optimistic lock conflict in " + operation + ", retry " + (retry + 1) + " in " + backoff + " ms");
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    long backoff(int retry) {
+        long bound = Math.min(maxBackoffMs, backoffMs << Math.min(retry, 20));
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    static boolean isConflict(Throwable t) {
+        while (t != null) {
+            if (t instanceof OptimisticLockException) {
+                return true;
+            }
+            t = t.getCause();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,97 @@
+package com.redhat.erdemo.responder.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+
+import com.redhat.erdemo.responder.repository.OutboxEventEntity;
+import com.redhat.erdemo.responder.repository.OutboxRepository;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the events of the outbox table to the responder-event channel, oldest first, in batches of at most
+ * <code>batch-size</code> events. The events of a batch are deleted in the same transaction which locked them, once
+ * all of them are acknowledged, so an event is sent at least once. When sending fails the transaction is rolled back
+ * and the batch is sent again on the next poll.
+ */
+@ApplicationScoped
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    @ConfigProperty(name = "responder.event.outbox.batch-size", defaultValue = "500")
+    int batchSize;
+
+    @ConfigProperty(name = "responder.event.outbox.poll-interval-ms", defaultValue = "100")
+    long pollIntervalMs;
+
+    @ConfigProperty(name = "responder.event.outbox.ack-timeout-ms", defaultValue = "10000")
+    long ackTimeoutMs;
+
+    @Inject
+    OutboxRepository repository;
+
+    @Inject
+    EventPublisher eventPublisher;
+
+    private ScheduledExecutorService scheduler;
+
+    void onStart(@Observes StartupEvent ev) {
+        if (eventPublisher.isOutboxEnabled()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "responder-outbox-relay"));
+            scheduler.scheduleWithFixedDelay(this::relay, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Sends batches until the outbox is drained.
+     *
+     * @return the number of events sent.
+     */
+    public int relay() {
+        int total = 0;
+        try {
+            int sent;
+            do {
+                sent = relayBatch();
+                total += sent;
+            } while (sent == batchSize);
+        } catch (Exception e) {
+            log.warn("Exception '" + e.getClass() + "' when relaying outbox events. Retrying on the next poll.");
+        }
+        return total;
+    }
+
+    @Transactional(rollbackOn = Exception.class)
+    int relayBatch() throws Exception {
+        List<OutboxEventEntity> events = repository.nextBatch(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        CompletableFuture<?>[] acks = events.stream()
+                .map(e -> eventPublisher.publish(e.getKey(), e.getPayload()).toCompletableFuture())
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(acks).get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+        repository.delete(events.stream().map(OutboxEventEntity::getId).collect(Collectors.toList()));
+        log.debug("Relayed " + events.size() + " outbox events");
+        return events.size();
+    }
+}
@@ -0,0 +1,110 @@
+package com.redhat.erdemo.responder.service;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from responder id to the last position and its timestamp, stored in parallel primitive arrays
+ * to avoid a boxed key and a value object per responder. Not thread safe.
+ */
+class PositionMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+
+    private double[] latitudes;
+
+    private double[] longitudes;
+
+    private long[] timestamps;
+
+    private int size;
+
+    PositionMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @return the slot of the key, or a negative value when the key is not in the map.
+     */
+    int indexOf(long key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+            if (keys[i] == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    double latitude(int index) {
+        return latitudes[index];
+    }
+
+    double longitude(int index) {
+        return longitudes[index];
+    }
+
+    long timestamp(int index) {
+        return timestamps[index];
+    }
+
+    void put(long key, double latitude, double longitude, long timestamp) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Unsupported key " + key);
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == EMPTY) {
+            keys[i] = key;
+            size++;
+        }
+        latitudes[i] = latitude;
+        longitudes[i] = longitude;
+        timestamps[i] = timestamp;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        allocate(keys.length);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        double[] oldLatitudes = latitudes;
+        double[] oldLongitudes = longitudes;
+        long[] oldTimestamps = timestamps;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldLatitudes[i], oldLongitudes[i], oldTimestamps[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        timestamps = new long[capacity];
+        size = 0;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,176 @@
+package com.redhat.erdemo.responder.service;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.transaction.Transactional;
+
+import com.redhat.erdemo.responder.repository.ProcessedMessageEntity;
+import com.redhat.erdemo.responder.repository.ProcessedMessageRepository;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ids of the recently processed command messages, used to skip messages which are delivered again after a
+ * rebalance. Holds at most <code>max-entries</code> ids, each for <code>ttl-ms</code>. When <code>persistent</code>
+ * is set, ids are also written to the <code>processed_message</code> table and loaded again at startup, expired rows
+ * are purged every <code>ttl-ms</code>. Ids are marked in the transaction of the update, so they are stored and
+ * remembered only when that update commits.
+ */
+@ApplicationScoped
+public class ProcessedMessageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessedMessageCache.class);
+
+    @ConfigProperty(name = "responder.command.dedup.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "responder.command.dedup.max-entries", defaultValue = "10000")
+    int maxEntries;
+
+    @ConfigProperty(name = "responder.command.dedup.ttl-ms", defaultValue = "600000")
+    long ttlMs;
+
+    @ConfigProperty(name = "responder.command.dedup.persistent", defaultValue = "false")
+    boolean persistent;
+
+    @Inject
+    ProcessedMessageRepository repository;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    Counter hits;
+
+    Counter misses;
+
+    // insertion ordered, so the eldest entry is also the first to expire
+    private final LinkedHashMap<String, Long> processed = new LinkedHashMap<String, Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void init() {
+        hits = metricRegistry.counter(Metadata.builder().withName("responder.command.dedup.hits")
+                .withType(MetricType.COUNTER).withDescription("Number of command messages skipped as already processed").build());
+        misses = metricRegistry.counter(Metadata.builder().withName("responder.command.dedup.misses")
+                .withType(MetricType.COUNTER).withDescription("Number of command messages not processed before").build());
+    }
+
+    void onStart(@Observes StartupEvent ev) {
+        if (enabled && persistent) {
+            load();
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "responder-dedup-purge"));
+            scheduler.scheduleWithFixedDelay(this::purge, ttlMs, ttlMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized boolean isProcessed(String messageId) {
+        Long processedAt = processed.get(messageId);
+        if (processedAt != null && System.currentTimeMillis() - processedAt < ttlMs) {
+            hits.inc();
+            return true;
+        }
+        misses.inc();
+        return false;
+    }
+
+    @Transactional
+    public void markProcessed(Collection<String> messageIds) {
+        if (!enabled || messageIds.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (persistent) {
+            messageIds.forEach(messageId -> repository.save(messageId, now));
+        }
+        AfterCommit.run(transactionRegistry, () -> remember(messageIds, now));
+    }
+
+    private synchronized void remember(Collection<String> messageIds, long now) {
+        for (String messageId : messageIds) {
+            processed.remove(messageId);
+            processed.put(messageId, now);
+        }
+        expire(now);
+    }
+
+    @Transactional
+    void load() {
+        long now = System.currentTimeMillis();
+        int deleted = repository.deleteBefore(now - ttlMs);
+        List<ProcessedMessageEntity> messages = repository.processedSince(now - ttlMs, maxEntries);
+        synchronized (this) {
+            processed.clear();
+            // oldest first, to keep the insertion order
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                processed.put(messages.get(i).getMessageId(), messages.get(i).getProcessedAt());
+            }
+        }
+        log.info("Loaded " + messages.size() + " processed message ids, deleted " + deleted + " expired ids");
+    }
+
+    /**
+     * Deletes the stored ids which expired, so the table holds about <code>ttl-ms</code> of processed messages.
+     */
+    void purge() {
+        try {
+            int deleted = deleteExpired();
+            log.debug("Deleted " + deleted + " expired processed message ids");
+        } catch (Exception e) {
+            log.warn("Exception '" + e.getClass() + "' when deleting expired processed message ids. Retrying on the next run.");
+        }
+    }
+
+    @Transactional
+    int deleteExpired() {
+        return repository.deleteBefore(System.currentTimeMillis() - ttlMs);
+    }
+
+    synchronized int size() {
+        return processed.size();
+    }
+
+    private void expire(long now) {
+        Iterator<Long> it = processed.values().iterator();
+        while (it.hasNext() && now - it.next() >= ttlMs) {
+            it.remove();
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.redhat.erdemo.responder.service;
 
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.transaction.Transactional;
 
 import com.redhat.erdemo.responder.model.Responder;
@@ -26,6 +29,30 @@ public class ResponderService {
     @Inject
     EventPublisher eventPublisher;
 
+    @Inject
+    ResponderStatusIndex statusIndex;
+
+    @Inject
+    ResponderSpatialIndex spatialIndex;
+
+    @Inject
+    ResponderTrackStore trackStore;
+
+    @Inject
+    LocationThrottle throttle;
+
+    @Inject
+    ProcessedMessageCache processedMessages;
+
+    @Inject
+    OptimisticLockRetry retry;
+
+    @Inject
+    GroupCommitWriter groupCommit;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
     @Transactional
     public ResponderStats getResponderStats() {
         return new ResponderStats(repository.activeRespondersCount(), repository.enrolledRespondersCount());
@@ -53,6 +80,21 @@ public class ResponderService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional
+    public List<Responder> nearestAvailableResponders(double latitude, double longitude, int k) {
+        if (spatialIndex.isEnabled()) {
+            return spatialIndex.nearest(latitude, longitude, k);
+        }
+        double cosLat = Math.cos(Math.toRadians(latitude));
+        return repository.availableResponders().stream()
+                .filter(r -> r.getCurrentPositionLatitude() != null && r.getCurrentPositionLongitude() != null)
+                .sorted(Comparator.comparingDouble(r -> ResponderSpatialIndex.distance(latitude, longitude,
+                        r.getCurrentPositionLatitude().doubleValue(), r.getCurrentPositionLongitude().doubleValue(), cosLat)))
+                .limit(k)
+                .map(this::toResponder)
+                .collect(Collectors.toList());
+    }
+
     @Transactional
     public List<Responder> allResponders() {
         return repository.allResponders().stream().map(this::toResponder)
@@ -81,43 +123,128 @@ public class ResponderService {
 
         ResponderEntity entity = fromResponder(responder);
         repository.create(entity);
+        Responder created = toResponder(entity);
+        updateIndexes(entity.getId(), entity.isAvailable(), created);
         eventPublisher.responderCreated(entity.getId());
-        return toResponder(entity);
+        return created;
     }
 
     @Transactional
     public void createResponders(List<Responder> responders) {
-        List<Long> responderIds = responders.stream()
+        EventPublisher.Chunked created = eventPublisher.respondersCreated(responders.size());
+        responders.stream()
                 .map(this::fromResponder)
-                .map(re -> repository.create(re).getId())
-                .collect(Collectors.toList());
+                .map(repository::create)
+                .peek(re -> updateIndexes(re.getId(), re.isAvailable(), toResponder(re)))
+                .map(ResponderEntity::getId)
+                .forEach(created::add);
+        created.complete();
+    }
 
-        eventPublisher.respondersCreated(responderIds);
+    public Triple<Boolean, String, Responder> updateResponder(Responder updateTo) {
+        return updateResponder(updateTo, Collections.emptyList());
     }
 
+    /**
+     * Updates the responder and marks the command messages with the given ids as processed in the same transaction.
+     */
+    public Triple<Boolean, String, Responder> updateResponder(Responder updateTo, List<String> messageIds) {
+        if (groupCommit.isEnabled()) {
+            return groupCommit.update(updateTo, messageIds);
+        }
+        return updateResponderWithRetry(updateTo, messageIds);
+    }
+
+    Triple<Boolean, String, Responder> updateResponderWithRetry(Responder updateTo, List<String> messageIds) {
+        try {
+            return retry.execute("updateResponder", () -> updateResponderInTransaction(updateTo, messageIds));
+        } catch (RuntimeException e) {
+            if (!OptimisticLockRetry.isConflict(e)) {
+                throw e;
+            }
+            log.warn("Optimistic lock conflicts when updating Responder with id '" + updateTo.getId() + "'. Responder record is not updated.");
+            return ImmutableTriple.of(false, "Exception '" + e.getClass() + "' when updating Responder", updateTo);
+        }
+    }
+
+    // not private, so the transaction interceptor applies and every retry runs in a new transaction
     @Transactional
-    public Triple<Boolean, String, Responder> updateResponder(Responder updateTo) {
+    Triple<Boolean, String, Responder> updateResponderInTransaction(Responder updateTo, List<String> messageIds) {
 
         ResponderEntity entity = fromResponder(updateTo);
         Triple<Boolean, String, ResponderEntity> result = repository.update(entity);
-        return ImmutableTriple.of(result.getLeft(), result.getMiddle(), toResponder(result.getRight()));
+        Responder responder = toResponder(result.getRight());
+        if (result.getLeft()) {
+            updateIndexes(result.getRight().getId(), result.getRight().isAvailable(), responder);
+        }
+        processedMessages.markProcessed(messageIds);
+        return ImmutableTriple.of(result.getLeft(), result.getMiddle(), responder);
+
+    }
 
+    /**
+     * Updates the responders and marks the command messages with the given ids as processed in the same transaction.
+     */
+    public List<Triple<Boolean, String, Responder>> updateResponders(List<Responder> updates, List<String> messageIds) {
+        return retry.execute("updateResponders", () -> updateRespondersInTransaction(updates, messageIds));
+    }
+
+    @Transactional
+    List<Triple<Boolean, String, Responder>> updateRespondersInTransaction(List<Responder> updates, List<String> messageIds) {
+
+        List<Triple<Boolean, String, ResponderEntity>> results = repository.updateAll(updates.stream()
+                .map(this::fromResponder).collect(Collectors.toList()));
+        processedMessages.markProcessed(messageIds);
+        return results.stream().<Triple<Boolean, String, Responder>>map(result -> {
+            Responder responder = toResponder(result.getRight());
+            if (result.getLeft()) {
+                updateIndexes(result.getRight().getId(), result.getRight().isAvailable(), responder);
+            }
+            return ImmutableTriple.of(result.getLeft(), result.getMiddle(), responder);
+        }).collect(Collectors.toList());
     }
 
     @Transactional
     public Triple<Boolean, String, Responder> updateResponderLocation(Responder updateTo) {
 
+        if (updateTo.getLatitude() == null || updateTo.getLongitude() == null) {
+            return ImmutableTriple.of(false, "Responder with id + " + updateTo.getId() + " has no location.", null);
+        }
         // only update location for responders during a mission
-        Responder current = getResponder(Long.parseLong(updateTo.getId()));
-        if (current == null) {
-            log.warn("Responder with id '" + updateTo.getId() + "' not found in the database");
-            return ImmutableTriple.of(false, "Responder with id + " + updateTo.getId() + " not found.", null);
+        long id = Long.parseLong(updateTo.getId());
+        if (statusIndex.isEnabled()) {
+            Boolean available = statusIndex.isAvailable(id);
+            if (available == null) {
+                log.debug("Responder with id '" + updateTo.getId() + "' not known. Ignoring location update");
+                return ImmutableTriple.of(false, "Responder with id + " + updateTo.getId() + " not found.", null);
+            }
+            if (available) {
+                log.debug("Responder with id '" + updateTo.getId() + "' is available. Ignoring location update");
+                return ImmutableTriple.of(false, "Responder with id + " + updateTo.getId() + " is available.", null);
+            }
         }
-        if (current.isAvailable()) {
-            log.warn("Responder with id '" + updateTo.getId() + "' is available. Ignoring location update");
-            return ImmutableTriple.of(false, "Responder with id + " + updateTo.getId() + " is available.", current);
+        if (!repository.updateLocation(id, updateTo.getLatitude(), updateTo.getLongitude())) {
+            log.warn("Responder with id '" + updateTo.getId() + "' not found in the database or available. Ignoring location update");
+            return ImmutableTriple.of(false, "Responder with id + " + updateTo.getId() + " not found or available.", null);
         }
-        return updateResponder(updateTo);
+        return ImmutableTriple.of(true, "Responder location updated", updateTo);
+    }
+
+    @Transactional
+    public List<Triple<Boolean, String, Responder>> updateResponderLocations(List<Responder> updates) {
+        return updates.stream().map(this::updateResponderLocation).collect(Collectors.toList());
+    }
+
+    // the indexes only see a write once its transaction commits, a rolled back write never reaches them
+    private void updateIndexes(long id, Boolean available, Responder responder) {
+        afterCommit(() -> {
+            statusIndex.update(id, available);
+            spatialIndex.update(responder);
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        AfterCommit.run(transactionRegistry, action);
     }
 
     private Responder toResponder(ResponderEntity entity) {
@@ -162,6 +289,7 @@ public class ResponderService {
     public void reset() {
         log.info("Reset called");
         repository.reset();
+        afterCommit(this::reloadIndexes);
     }
 
 
@@ -174,14 +302,28 @@ public class ResponderService {
         } else {
             repository.resetPersonsDeleteBots();
         }
+        afterCommit(this::reloadIndexes);
 
         eventPublisher.respondersDeleted(responderIds);
     }
 
+    // the indexes read the committed responders in their own transaction
+    private void reloadIndexes() {
+        statusIndex.reload();
+        spatialIndex.reload();
+        trackStore.clear();
+        throttle.clear();
+    }
+
     @Transactional
     public void deleteAll() {
         log.info("Delete All called");
         repository.deleteAll();
+        afterCommit(() -> {
+            statusIndex.clear();
+            spatialIndex.clear();
+            trackStore.clear();
+        });
     }
 
 }
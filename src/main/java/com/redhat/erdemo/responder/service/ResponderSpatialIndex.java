@@ -0,0 +1,225 @@
+package com.redhat.erdemo.responder.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+
+import com.redhat.erdemo.responder.model.Responder;
+import com.redhat.erdemo.responder.repository.ResponderEntity;
+import com.redhat.erdemo.responder.repository.ResponderRepository;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory grid of the available and enrolled responders with a location, used to answer nearest responder queries
+ * without a database query. The grid cells are <code>cell-size-deg</code> degrees wide, a query visits rings of cells
+ * around the query location until no unvisited cell can hold a closer responder. Like the status index, the grid is
+ * only kept up to date with the writes of this instance.
+ */
+@ApplicationScoped
+public class ResponderSpatialIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponderSpatialIndex.class);
+
+    @ConfigProperty(name = "responder.spatial-index.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "responder.spatial-index.cell-size-deg", defaultValue = "0.01")
+    double cellSize;
+
+    @Inject
+    ResponderRepository repository;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Map<Long, Set<Entry>> cells = new ConcurrentHashMap<>();
+
+    void onStart(@Observes StartupEvent ev) {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds the responder to the index when it is available, enrolled and has a location, removes it otherwise.
+     */
+    public synchronized void update(Responder responder) {
+        if (!enabled) {
+            return;
+        }
+        long id = Long.parseLong(responder.getId());
+        remove(id);
+        if (Boolean.TRUE.equals(responder.isAvailable()) && Boolean.TRUE.equals(responder.isEnrolled())
+                && responder.getLatitude() != null && responder.getLongitude() != null) {
+            double lat = responder.getLatitude().doubleValue();
+            double lon = responder.getLongitude().doubleValue();
+            Entry entry = new Entry(responder, lat, lon, cell(cellOf(lat), cellOf(lon)));
+            entries.put(id, entry);
+            cells.computeIfAbsent(entry.cell, c -> ConcurrentHashMap.newKeySet()).add(entry);
+        }
+    }
+
+    /**
+     * @return the <code>k</code> responders closest to the location, closest first.
+     */
+    public List<Responder> nearest(double lat, double lon, int k) {
+        if (k <= 0 || entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+        double cosLat = Math.cos(Math.toRadians(lat));
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Math.max(1, Math.min(k, entries.size())), Comparator.comparingDouble((Candidate c) -> c.distance).reversed());
+        int latCell = cellOf(lat);
+        int lonCell = cellOf(lon);
+        int total = entries.size();
+        int visited = 0;
+        long lookups = 0;
+        for (int ring = 0; visited < total; ring++) {
+            // cells outside the rings visited so far are at least (ring - 1) cells away from the query location
+            if (best.size() == k && best.peek().distance <= (ring - 1) * cellSize * cosLat) {
+                break;
+            }
+            // far from the responders, or they moved while visiting: looking at every responder is cheaper
+            lookups += ring == 0 ? 1 : 8L * ring;
+            if (lookups > total) {
+                best.clear();
+                for (Entry entry : entries.values()) {
+                    offer(best, k, entry, distance(lat, lon, entry.lat, entry.lon, cosLat));
+                }
+                break;
+            }
+            for (int dLat = -ring; dLat <= ring; dLat++) {
+                int step = (dLat == -ring || dLat == ring) ? 1 : 2 * ring;
+                for (int dLon = -ring; dLon <= ring; dLon += step) {
+                    Set<Entry> cell = cells.get(cell(latCell + dLat, lonCell + dLon));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (Entry entry : cell) {
+                        visited++;
+                        offer(best, k, entry, distance(lat, lon, entry.lat, entry.lon, cosLat));
+                    }
+                }
+            }
+        }
+        List<Responder> nearest = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            nearest.add(best.poll().responder);
+        }
+        Collections.reverse(nearest);
+        return nearest;
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public synchronized void reload() {
+        if (enabled) {
+            clear();
+            repository.availableResponders().stream().map(this::toResponder).forEach(this::update);
+            log.info("Responder spatial index loaded with " + entries.size() + " responders");
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cells.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private Responder toResponder(ResponderEntity entity) {
+        return new Responder.Builder(Long.toString(entity.getId()))
+                .name(entity.getName())
+                .phoneNumber(entity.getPhoneNumber())
+                .latitude(entity.getCurrentPositionLatitude())
+                .longitude(entity.getCurrentPositionLongitude())
+                .boatCapacity(entity.getBoatCapacity())
+                .medicalKit(entity.getMedicalKit())
+                .available(entity.isAvailable())
+                .person(entity.isPerson())
+                .enrolled(entity.isEnrolled())
+                .build();
+    }
+
+    private static void offer(PriorityQueue<Candidate> best, int k, Entry entry, double distance) {
+        if (best.size() < k) {
+            best.add(new Candidate(entry.responder, distance));
+        } else if (distance < best.peek().distance) {
+            best.poll();
+            best.add(new Candidate(entry.responder, distance));
+        }
+    }
+
+    // equirectangular distance in degrees of latitude, fine for ranking responders around the query location
+    static double distance(double lat1, double lon1, double lat2, double lon2, double cosLat) {
+        double x = (lon2 - lon1) * cosLat;
+        double y = lat2 - lat1;
+        return Math.sqrt(x * x + y * y);
+    }
+
+    private void remove(long id) {
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            Set<Entry> cell = cells.get(previous.cell);
+            if (cell != null) {
+                cell.remove(previous);
+                if (cell.isEmpty()) {
+                    cells.remove(previous.cell);
+                }
+            }
+        }
+    }
+
+    private int cellOf(double degrees) {
+        return (int) Math.floor(degrees / cellSize);
+    }
+
+    private static long cell(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xffffffffL);
+    }
+
+    private static class Entry {
+
+        private final Responder responder;
+
+        private final double lat;
+
+        private final double lon;
+
+        private final long cell;
+
+        Entry(Responder responder, double lat, double lon, long cell) {
+            this.responder = responder;
+            this.lat = lat;
+            this.lon = lon;
+            this.cell = cell;
+        }
+    }
+
+    private static class Candidate {
+
+        private final Responder responder;
+
+        private final double distance;
+
+        Candidate(Responder responder, double distance) {
+            this.responder = responder;
+            this.distance = distance;
+        }
+    }
+}
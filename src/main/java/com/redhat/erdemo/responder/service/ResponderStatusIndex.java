@@ -0,0 +1,68 @@
+package com.redhat.erdemo.responder.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+
+import com.redhat.erdemo.responder.repository.ResponderRepository;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of the known responders and their availability, used to reject location updates for unknown or
+ * available responders without a database round trip. The index is only kept up to date with the writes of this
+ * instance, so it should only be enabled when a single instance of the service writes to the responder table.
+ */
+@ApplicationScoped
+public class ResponderStatusIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ResponderStatusIndex.class);
+
+    @ConfigProperty(name = "responder.status-index.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @Inject
+    ResponderRepository repository;
+
+    private volatile Map<Long, Boolean> available = new ConcurrentHashMap<>();
+
+    void onStart(@Observes StartupEvent ev) {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the availability of the responder, or <code>null</code> when the responder is not known.
+     */
+    public Boolean isAvailable(long id) {
+        return available.get(id);
+    }
+
+    public void update(long id, Boolean isAvailable) {
+        if (enabled) {
+            available.put(id, Boolean.TRUE.equals(isAvailable));
+        }
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void reload() {
+        if (enabled) {
+            available = new ConcurrentHashMap<>(repository.availabilityById());
+            log.info("Responder status index loaded with " + available.size() + " responders");
+        }
+    }
+
+    public void clear() {
+        available.clear();
+    }
+}
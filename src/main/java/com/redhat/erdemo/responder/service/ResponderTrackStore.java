@@ -0,0 +1,117 @@
+package com.redhat.erdemo.responder.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.enterprise.context.ApplicationScoped;
+
+import com.redhat.erdemo.responder.model.TrackPoint;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Keeps the last <code>samples</code> locations per responder in memory, in a fixed size ring buffer of primitive
+ * arrays. At most <code>max-responders</code> responders are tracked, the track of the least recently updated responder
+ * is evicted to make room for a new one, so the memory used is bounded by about max-responders * samples * 16 bytes.
+ * Nothing is written to the database.
+ */
+@ApplicationScoped
+public class ResponderTrackStore {
+
+    @ConfigProperty(name = "responder.track.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "responder.track.samples", defaultValue = "20")
+    int samples;
+
+    @ConfigProperty(name = "responder.track.max-responders", defaultValue = "100000")
+    int maxResponders;
+
+    // in order of the last update, guarded by itself
+    private final Map<Long, Track> tracks = new LinkedHashMap<Long, Track>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Track> eldest) {
+            return size() > maxResponders;
+        }
+    };
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void record(long responderId, double latitude, double longitude, long timestamp) {
+        if (!enabled) {
+            return;
+        }
+        Track track;
+        synchronized (tracks) {
+            // re-inserted, so the map stays in order of the last update
+            track = tracks.remove(responderId);
+            if (track == null) {
+                track = new Track(samples);
+            }
+            tracks.put(responderId, track);
+        }
+        track.add((float) latitude, (float) longitude, timestamp);
+    }
+
+    /**
+     * @return the tracked locations of the responder, oldest first, or <code>null</code> when the responder is not
+     * tracked.
+     */
+    public List<TrackPoint> track(long responderId) {
+        Track track;
+        synchronized (tracks) {
+            track = tracks.get(responderId);
+        }
+        return track == null ? null : track.points();
+    }
+
+    public void clear() {
+        synchronized (tracks) {
+            tracks.clear();
+        }
+    }
+
+    private static class Track {
+
+        private final float[] latitudes;
+
+        private final float[] longitudes;
+
+        private final long[] timestamps;
+
+        // index of the next sample to write
+        private int head;
+
+        private int count;
+
+        Track(int samples) {
+            latitudes = new float[samples];
+            longitudes = new float[samples];
+            timestamps = new long[samples];
+        }
+
+        synchronized void add(float latitude, float longitude, long timestamp) {
+            latitudes[head] = latitude;
+            longitudes[head] = longitude;
+            timestamps[head] = timestamp;
+            head = (head + 1) % timestamps.length;
+            if (count < timestamps.length) {
+                count++;
+            }
+        }
+
+        synchronized List<TrackPoint> points() {
+            List<TrackPoint> points = new ArrayList<>(count);
+            int start = (head - count + timestamps.length) % timestamps.length;
+            for (int i = 0; i < count; i++) {
+                int index = (start + i) % timestamps.length;
+                points.add(new TrackPoint(new BigDecimal(Float.toString(latitudes[index])),
+                        new BigDecimal(Float.toString(longitudes[index])), timestamps[index]));
+            }
+            return points;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.redhat.erdemo.responder.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import com.redhat.erdemo.responder.message.BinaryEventCodec;
+import com.redhat.erdemo.responder.message.EventCodec;
+import com.redhat.erdemo.responder.message.JsonEventCodec;
+import com.redhat.erdemo.responder.message.Message;
+import com.redhat.erdemo.responder.message.ResponderUpdatedEvent;
+import com.redhat.erdemo.responder.message.RespondersCreatedEvent;
+import com.redhat.erdemo.responder.model.Responder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the encode time of the JSON and binary event codecs. The payload size of each codec is printed when the
+ * benchmark is set up.
+ * Run with <code>mvn test -Pbenchmark -Dbenchmark=EventCodecBenchmark</code>, the gc profiler reports the
+ * allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventCodecBenchmark {
+
+    @Param({"json", "binary"})
+    public String codecName;
+
+    @Param({"ResponderUpdatedEvent", "RespondersCreatedEvent"})
+    public String event;
+
+    private EventCodec codec;
+
+    private Message<?> message;
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() {
+        codec = "json".equals(codecName) ? new JsonEventCodec() : new BinaryEventCodec();
+        if ("ResponderUpdatedEvent".equals(event)) {
+            Responder responder = new Responder.Builder("64").name("John Doe").phoneNumber("(123) 456-7890")
+                    .latitude(new BigDecimal("34.1701")).longitude(new BigDecimal("-77.9482")).boatCapacity(3)
+                    .medicalKit(true).available(true).person(true).enrolled(true).build();
+            message = new Message.Builder<>("ResponderUpdatedEvent", "ResponderService",
+                    new ResponderUpdatedEvent.Builder("success", responder).statusMessage("Responder updated").build())
+                    .header("incidentId", "5d9b2d3a-136f-414f-96ba-1b2a445fee5d").build();
+        } else {
+            Long[] ids = new Long[100];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = 1000L + i;
+            }
+            message = new Message.Builder<>("RespondersCreatedEvent", "ResponderService",
+                    new RespondersCreatedEvent.Builder(ids).build()).build();
+        }
+        System.out.println("Payload size " + codecName + " " + event + ": " + codec.encode(message).length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(message);
+    }
+}
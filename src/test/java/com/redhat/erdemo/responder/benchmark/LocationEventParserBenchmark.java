@@ -0,0 +1,69 @@
+package com.redhat.erdemo.responder.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import com.redhat.erdemo.responder.consumer.LocationEvent;
+import com.redhat.erdemo.responder.consumer.LocationEventParser;
+import com.redhat.erdemo.responder.model.Responder;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the vert.x <code>JsonObject</code> decoding of location events with the streaming parser.
+ * Run with <code>mvn test -Pbenchmark -Dbenchmark=LocationEventParserBenchmark</code>, the gc profiler reports the
+ * allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationEventParserBenchmark {
+
+    @Param({"MOVING", "DROPPED"})
+    public String status;
+
+    private String payload;
+
+    private byte[] bytes;
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() {
+        payload = "{\"responderId\":\"64\",\"missionId\":\"f5a9bc5e-408c-4f86-8592-6f67bb73c5fd\"," +
+                "\"incidentId\":\"5d9b2d3a-136f-414f-96ba-1b2a445fee5d\",\"status\":\"" + status + "\"," +
+                "\"lat\":34.1701,\"lon\":-77.9482,\"human\":false,\"continue\":true}";
+        bytes = payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Responder jsonObject() {
+        JsonObject json = new JsonObject(payload);
+        String responderId = json.getString("responderId");
+        BigDecimal lat = json.getDouble("lat") != null ? BigDecimal.valueOf(json.getDouble("lat")) : null;
+        BigDecimal lon = json.getDouble("lon") != null ? BigDecimal.valueOf(json.getDouble("lon")) : null;
+        String status = json.getString("status");
+        if (responderId != null && "MOVING".equalsIgnoreCase(status)) {
+            return new Responder.Builder(responderId).latitude(lat).longitude(lon).build();
+        }
+        return null;
+    }
+
+    // the record payload as delivered by the ByteArrayDeserializer
+    @Benchmark
+    public LocationEvent streaming() throws IOException {
+        return LocationEventParser.parse(bytes);
+    }
+}
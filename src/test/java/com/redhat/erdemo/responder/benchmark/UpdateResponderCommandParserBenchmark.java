@@ -0,0 +1,93 @@
+package com.redhat.erdemo.responder.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.redhat.erdemo.responder.consumer.MessageTypeFilter;
+import com.redhat.erdemo.responder.consumer.UpdateResponderCommand;
+import com.redhat.erdemo.responder.consumer.UpdateResponderCommandParser;
+import com.redhat.erdemo.responder.model.Responder;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the previous <code>JsonObject</code> decoding of responder commands, including the header map, with the
+ * single pass parser and with the raw byte prefilter. Run with <code>mvn test -Pbenchmark -Dbenchmark=UpdateResponderCommandParserBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpdateResponderCommandParserBenchmark {
+
+    private static final String[] ACCEPTED_MESSAGE_TYPES = {"UpdateResponderCommand"};
+
+    @Param({"UpdateResponderCommand", "SetResponderUnavailableCommand"})
+    public String messageType;
+
+    private String payload;
+
+    private byte[] bytes;
+
+    @org.openjdk.jmh.annotations.Setup
+    public void setup() {
+        payload = "{\"messageType\":\"" + messageType + "\",\"id\":\"a9d4f6a5-6a4b-4a41-8f6c-0e1f0e3b8b8a\"," +
+                "\"invokingService\":\"MissionService\",\"timestamp\":1521148332397," +
+                "\"header\":{\"incidentId\":\"5d9b2d3a-136f-414f-96ba-1b2a445fee5d\"}," +
+                "\"body\":{\"responder\":{\"id\":\"64\",\"available\":true,\"latitude\":34.1701,\"longitude\":-77.9482}}}";
+        bytes = payload.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void jsonObject(Blackhole bh) {
+        JsonObject json = new JsonObject(payload);
+        String type = json.getString("messageType");
+        if (!Arrays.asList(ACCEPTED_MESSAGE_TYPES).contains(type)
+                || !json.containsKey("body") || !json.getJsonObject("body").containsKey("responder")) {
+            return;
+        }
+        JsonObject r = json.getJsonObject("body").getJsonObject("responder");
+        bh.consume(new Responder.Builder(r.getString("id"))
+                .name(r.getString("name"))
+                .phoneNumber(r.getString("phoneNumber"))
+                .medicalKit(r.getBoolean("medicalKit"))
+                .boatCapacity(r.getInteger("boatCapacity"))
+                .latitude(r.getDouble("latitude") != null ? BigDecimal.valueOf(r.getDouble("latitude")) : null)
+                .longitude(r.getDouble("longitude") != null ? BigDecimal.valueOf(r.getDouble("longitude")) : null)
+                .available(r.getBoolean("available"))
+                .enrolled(r.getBoolean("enrolled"))
+                .person(r.getBoolean("person"))
+                .build());
+        Map<String, String> headers = json.getJsonObject("header", new JsonObject()).getMap().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toString()));
+        bh.consume(headers);
+    }
+
+    @Benchmark
+    public UpdateResponderCommand streaming() throws IOException {
+        return UpdateResponderCommandParser.parse(bytes);
+    }
+
+    // raw record payload, as delivered by the ByteArrayDeserializer
+    @Benchmark
+    public UpdateResponderCommand prefiltered() throws IOException {
+        return MessageTypeFilter.accept(bytes) ? UpdateResponderCommandParser.parse(bytes) : null;
+    }
+}
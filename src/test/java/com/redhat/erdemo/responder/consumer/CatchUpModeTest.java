@@ -0,0 +1,31 @@
+package com.redhat.erdemo.responder.consumer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class CatchUpModeTest {
+
+    @Test
+    void testEnterAndExitCatchUpMode() {
+
+        CatchUpMode mode = new CatchUpMode(60000, 5000);
+
+        assertThat(mode.update(1000), equalTo(false));
+        assertThat(mode.isActive(), equalTo(false));
+
+        assertThat(mode.update(90000), equalTo(true));
+        assertThat(mode.isActive(), equalTo(true));
+
+        // between the thresholds the mode does not change
+        assertThat(mode.update(30000), equalTo(false));
+        assertThat(mode.isActive(), equalTo(true));
+
+        assertThat(mode.update(1000), equalTo(true));
+        assertThat(mode.isActive(), equalTo(false));
+
+        assertThat(mode.update(30000), equalTo(false));
+        assertThat(mode.isActive(), equalTo(false));
+    }
+}
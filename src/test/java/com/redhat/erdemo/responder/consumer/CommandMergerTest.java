@@ -0,0 +1,80 @@
+package com.redhat.erdemo.responder.consumer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.redhat.erdemo.responder.model.Responder;
+import org.junit.jupiter.api.Test;
+
+public class CommandMergerTest {
+
+    @Test
+    void testCommandsForSameResponderAreMerged() {
+
+        CommandMerger merger = new CommandMerger();
+        UpdateResponderCommand command1 = command("message1", new Responder.Builder("1").available(false).build());
+        UpdateResponderCommand command2 = command("message2", new Responder.Builder("1").available(true).build());
+        UpdateResponderCommand command3 = command("message3", new Responder.Builder("2").available(true).build());
+
+        CommandMerger.PendingUpdate update1 = merger.add(command1);
+        CommandMerger.PendingUpdate update2 = merger.add(command2);
+        CommandMerger.PendingUpdate update3 = merger.add(command3);
+
+        assertThat(update1.startedBy(command1), equalTo(true));
+        assertThat(update2, sameInstance(update1));
+        assertThat(update2.startedBy(command2), equalTo(false));
+        assertThat(update3, not(sameInstance(update1)));
+        assertThat(merger.size(), equalTo(2));
+
+        List<UpdateResponderCommand> commands = merger.take(update1);
+        assertThat(commands, equalTo(Arrays.asList(command1, command2)));
+        assertThat(merger.size(), equalTo(1));
+
+        // commands after the update was taken start a new pending update
+        UpdateResponderCommand command4 = command("message4", new Responder.Builder("1").available(false).build());
+        CommandMerger.PendingUpdate update4 = merger.add(command4);
+        assertThat(update4.startedBy(command4), equalTo(true));
+    }
+
+    @Test
+    void testMergeLaterFieldsOverrideEarlierFields() {
+
+        Responder responder = CommandMerger.merge(Arrays.asList(
+                command("message1", new Responder.Builder("1").name("John Doe").available(false)
+                        .latitude(new BigDecimal("30.12345")).longitude(new BigDecimal("-70.98765")).build()),
+                command("message2", new Responder.Builder("1").available(true).enrolled(true).build()),
+                command("message3", new Responder.Builder("1").latitude(new BigDecimal("31.12345")).build())));
+
+        assertThat(responder.getId(), equalTo("1"));
+        assertThat(responder.getName(), equalTo("John Doe"));
+        assertThat(responder.isAvailable(), equalTo(true));
+        assertThat(responder.isEnrolled(), equalTo(true));
+        assertThat(responder.getLatitude(), equalTo(new BigDecimal("31.12345")));
+        assertThat(responder.getLongitude(), equalTo(new BigDecimal("-70.98765")));
+    }
+
+    @Test
+    void testRunsEndAtAnAvailabilityChange() {
+
+        UpdateResponderCommand command1 = command("message1", new Responder.Builder("1").available(false).build());
+        UpdateResponderCommand command2 = command("message2", new Responder.Builder("1").enrolled(true).build());
+        UpdateResponderCommand command3 = command("message3", new Responder.Builder("1").available(false).build());
+        UpdateResponderCommand command4 = command("message4", new Responder.Builder("1").available(true).build());
+
+        List<List<UpdateResponderCommand>> runs = CommandMerger.runs(Arrays.asList(command1, command2, command3, command4));
+
+        assertThat(runs, equalTo(Arrays.asList(Arrays.asList(command1, command2, command3),
+                Collections.singletonList(command4))));
+    }
+
+    private UpdateResponderCommand command(String id, Responder responder) {
+        return new UpdateResponderCommand(id, Collections.singletonMap("incidentId", id), responder);
+    }
+}
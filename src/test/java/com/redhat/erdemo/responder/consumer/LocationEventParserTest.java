@@ -0,0 +1,98 @@
+package com.redhat.erdemo.responder.consumer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.redhat.erdemo.responder.model.Responder;
+import org.junit.jupiter.api.Test;
+
+public class LocationEventParserTest {
+
+    @Test
+    void testParseMovingEvent() throws IOException {
+        String json = "{\"responderId\":\"64\",\"missionId\":\"f5a9bc5e-408c-4f86-8592-6f67bb73c5fd\"," +
+                "\"incidentId\":\"5d9b2d3a-136f-414f-96ba-1b2a445fee5d\",\"status\":\"MOVING\"," +
+                "\"lat\":34.1701,\"lon\":-77.9482,\"human\":false,\"continue\":true," +
+                "\"nested\":{\"status\":\"DROPPED\",\"lat\":1.0},\"list\":[1,2,{\"lat\":2.0}]}";
+
+        LocationEvent event = parse(json);
+
+        assertThat(event, notNullValue());
+        assertThat(event.getResponderId(), equalTo(64L));
+        assertThat(event.getLatitude(), equalTo(34.1701));
+        assertThat(event.getLongitude(), equalTo(-77.9482));
+        Responder responder = event.toResponder();
+        assertThat(responder.getId(), equalTo("64"));
+        assertThat(responder.getLatitude().toString(), equalTo("34.1701"));
+        assertThat(responder.getLongitude().toString(), equalTo("-77.9482"));
+    }
+
+    @Test
+    void testParseMovingEventFromBytes() throws IOException {
+        byte[] payload = "{\"responderId\":\"64\",\"status\":\"MOVING\",\"lat\":34.1701,\"lon\":-77.9482}".getBytes(StandardCharsets.UTF_8);
+
+        LocationEvent event = LocationEventParser.parse(payload);
+
+        assertThat(event, notNullValue());
+        assertThat(event.getResponderId(), equalTo(64L));
+        assertThat(event.getLatitude(), equalTo(34.1701));
+        assertThat(event.getLongitude(), equalTo(-77.9482));
+    }
+
+    @Test
+    void testParseStatusIsCaseInsensitive() throws IOException {
+        LocationEvent event = parse("{\"lat\":34.1701,\"lon\":-77.9482,\"status\":\"moving\",\"responderId\":64}");
+
+        assertThat(event, notNullValue());
+        assertThat(event.getResponderId(), equalTo(64L));
+    }
+
+    @Test
+    void testParseNotMovingEvent() throws IOException {
+        LocationEvent event = parse("{\"responderId\":\"64\",\"status\":\"DROPPED\",\"lat\":34.1701,\"lon\":-77.9482}");
+
+        assertThat(event, nullValue());
+    }
+
+    @Test
+    void testParseNotMovingEventStopsAtStatus() throws IOException {
+        // the rest of the payload is not read once the status is known
+        LocationEvent event = parse("{\"status\":\"PICKEDUP\",\"lat\": this is not json");
+
+        assertThat(event, nullValue());
+    }
+
+    @Test
+    void testParseEventWithoutResponderId() throws IOException {
+        LocationEvent event = parse("{\"status\":\"MOVING\",\"lat\":34.1701,\"lon\":-77.9482}");
+
+        assertThat(event, nullValue());
+    }
+
+    @Test
+    void testParseEventWithoutLocation() throws IOException {
+        LocationEvent event = parse("{\"responderId\":\"64\",\"status\":\"MOVING\"}");
+
+        assertThat(event, notNullValue());
+        Responder responder = event.toResponder();
+        assertThat(responder.getLatitude(), nullValue());
+        assertThat(responder.getLongitude(), nullValue());
+    }
+
+    @Test
+    void testParseInvalidPayload() {
+        assertThrows(IOException.class, () -> parse("not json"));
+        assertThrows(IOException.class, () -> parse("[1, 2]"));
+        assertThrows(NumberFormatException.class, () -> parse("{\"responderId\":\"abc\",\"status\":\"MOVING\"}"));
+    }
+
+    private static LocationEvent parse(String json) throws IOException {
+        return LocationEventParser.parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
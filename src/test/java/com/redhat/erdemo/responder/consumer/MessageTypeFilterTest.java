@@ -0,0 +1,48 @@
+package com.redhat.erdemo.responder.consumer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+public class MessageTypeFilterTest {
+
+    @Test
+    void testAcceptPayload() {
+        assertThat(accept("{\"messageType\":\"UpdateResponderCommand\",\"body\":{}}"), equalTo(true));
+        assertThat(accept("{\"id\":\"1\",\n  \"messageType\" : \"UpdateResponderCommand\"}"), equalTo(true));
+        // nested fields are left to the parser
+        assertThat(accept("{\"body\":{\"messageType\":\"UpdateResponderCommand\"},\"messageType\":\"Other\"}"), equalTo(true));
+        // escape sequences are left to the parser
+        assertThat(accept("{\"messageType\":\"Update\\u0052esponderCommand\"}"), equalTo(true));
+    }
+
+    @Test
+    void testRejectPayload() {
+        assertThat(accept("{\"messageType\":\"SetResponderUnavailableCommand\",\"body\":{}}"), equalTo(false));
+        assertThat(accept("{\"messageType\":\"UpdateResponderCommandV2\"}"), equalTo(false));
+        assertThat(accept("{\"messageType\":1}"), equalTo(false));
+        assertThat(accept("{\"note\":\"\\\"messageType\\\":\\\"UpdateResponderCommand\\\"\"}"), equalTo(false));
+        assertThat(accept("{\"field1\":\"value1\"}"), equalTo(false));
+        assertThat(accept("not json"), equalTo(false));
+        assertThat(MessageTypeFilter.accept(null), equalTo(false));
+    }
+
+    @Test
+    void testHeader() {
+        byte[] payload = "{\"messageType\":\"UpdateResponderCommand\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(MessageTypeFilter.accept(new RecordHeaders().add(MessageTypeFilter.HEADER,
+                "UpdateResponderCommand".getBytes(StandardCharsets.UTF_8)), payload), equalTo(true));
+        assertThat(MessageTypeFilter.accept(new RecordHeaders().add(MessageTypeFilter.HEADER,
+                "Other".getBytes(StandardCharsets.UTF_8)), payload), equalTo(false));
+        assertThat(MessageTypeFilter.accept(new RecordHeaders(), payload), equalTo(true));
+    }
+
+    private boolean accept(String payload) {
+        return MessageTypeFilter.accept(payload.getBytes(StandardCharsets.UTF_8));
+    }
+}
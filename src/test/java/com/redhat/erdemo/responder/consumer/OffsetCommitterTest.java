@@ -0,0 +1,203 @@
+package com.redhat.erdemo.responder.consumer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import io.smallrye.reactive.messaging.kafka.IncomingKafkaRecord;
+import io.smallrye.reactive.messaging.kafka.commit.KafkaCommitHandler;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.kafka.client.common.TopicPartition;
+import io.vertx.kafka.client.consumer.OffsetAndMetadata;
+import io.vertx.kafka.client.consumer.impl.KafkaConsumerRecordImpl;
+import io.vertx.mutiny.kafka.client.consumer.KafkaConsumer;
+import io.vertx.mutiny.kafka.client.consumer.KafkaConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class OffsetCommitterTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("topic", 1);
+
+    private OffsetCommitter committer;
+
+    private io.vertx.kafka.client.consumer.KafkaConsumer<String, String> delegate;
+
+    private final AtomicInteger recordAcks = new AtomicInteger();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void init() {
+        MetricRegistry metricRegistry = mock(MetricRegistry.class);
+        when(metricRegistry.counter(any(Metadata.class))).thenReturn(mock(Counter.class));
+        committer = new OffsetCommitter();
+        committer.enabled = true;
+        committer.maxRecords = 3;
+        committer.intervalMs = 60000;
+        committer.metricRegistry = metricRegistry;
+        committer.init();
+        delegate = mock(io.vertx.kafka.client.consumer.KafkaConsumer.class);
+        committer.onPartitionsAssigned(new KafkaConsumer<>(delegate), Collections.singleton(PARTITION));
+    }
+
+    @AfterEach
+    void shutdown() {
+        committer.shutdown();
+    }
+
+    @Test
+    void testCommitEveryMaxRecords() {
+        List<Message<?>> messages = track(10, 11, 12, 13, 14);
+
+        ack(messages, 0, 1);
+        verify(delegate, never()).commit(any(Map.class), any());
+        ack(messages, 2);
+        assertThat(committed(1), equalTo(Collections.singletonList(13L)));
+
+        ack(messages, 3, 4);
+        verify(delegate, times(1)).commit(any(Map.class), any());
+        committer.commitAll();
+        assertThat(committed(2).get(1), equalTo(15L));
+        // nothing new to commit
+        committer.commitAll();
+        verify(delegate, times(2)).commit(any(Map.class), any());
+        assertThat(recordAcks.get(), equalTo(0));
+    }
+
+    @Test
+    void testCommitHighestContiguousOffset() {
+        List<Message<?>> messages = track(10, 11, 12, 20);
+
+        ack(messages, 1, 3);
+        committer.commitAll();
+        verify(delegate, never()).commit(any(Map.class), any());
+
+        ack(messages, 0);
+        committer.commitAll();
+        assertThat(committed(1), equalTo(Collections.singletonList(12L)));
+
+        ack(messages, 2);
+        committer.commitAll();
+        assertThat(committed(2).get(1), equalTo(21L));
+    }
+
+    @Test
+    void testCommitOnRevocation() {
+        List<Message<?>> messages = track(10, 11);
+        ack(messages, 0);
+
+        committer.onPartitionsRevoked(new KafkaConsumer<>(delegate), Collections.singleton(PARTITION));
+        assertThat(committed(1), equalTo(Collections.singletonList(11L)));
+
+        // no longer assigned: acked as configured for the channel
+        ack(messages, 1);
+        IncomingKafkaRecord<String, String> record = record(12);
+        Message<?> message = committer.track(record);
+        assertThat(message, sameInstance(record));
+        message.ack();
+        assertThat(recordAcks.get(), equalTo(1));
+        committer.commitAll();
+        verify(delegate, times(1)).commit(any(Map.class), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRevocationCompletesWithCommit() {
+        List<Message<?>> messages = track(10);
+        ack(messages, 0);
+
+        CompletableFuture<Void> revoked = committer.onPartitionsRevoked(new KafkaConsumer<>(delegate), Collections.singleton(PARTITION))
+                .subscribeAsCompletionStage();
+        ArgumentCaptor<Handler<AsyncResult<Map<TopicPartition, OffsetAndMetadata>>>> handler = ArgumentCaptor.forClass(Handler.class);
+        verify(delegate).commit(any(Map.class), handler.capture());
+        assertThat(revoked.isDone(), equalTo(false));
+
+        handler.getValue().handle(Future.succeededFuture());
+        assertThat(revoked.isDone(), equalTo(true));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedCommitIsRetried() {
+        List<Message<?>> messages = track(10, 11);
+        ack(messages, 0, 1);
+
+        committer.commitAll();
+        ArgumentCaptor<Handler<AsyncResult<Map<TopicPartition, OffsetAndMetadata>>>> handler = ArgumentCaptor.forClass(Handler.class);
+        verify(delegate).commit(any(Map.class), handler.capture());
+        handler.getValue().handle(Future.failedFuture(new IllegalStateException("commit failed")));
+
+        committer.commitAll();
+        assertThat(committed(2), equalTo(Arrays.asList(12L, 12L)));
+    }
+
+    @Test
+    void testDisabled() {
+        committer.enabled = false;
+        IncomingKafkaRecord<String, String> record = record(10);
+
+        assertThat(committer.track(record), sameInstance(record));
+        committer.enabled = true;
+        assertThat(committer.track(record), not(sameInstance(record)));
+    }
+
+    private List<Message<?>> track(long... offsets) {
+        List<Message<?>> messages = new ArrayList<>();
+        for (long offset : offsets) {
+            messages.add(committer.track(record(offset)));
+        }
+        return messages;
+    }
+
+    private void ack(List<Message<?>> messages, int... indexes) {
+        for (int i : indexes) {
+            messages.get(i).ack();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> committed(int times) {
+        ArgumentCaptor<Map<TopicPartition, OffsetAndMetadata>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(delegate, times(times)).commit(captor.capture(), any());
+        return captor.getAllValues().stream().map(m -> m.get(PARTITION).getOffset()).collect(Collectors.toList());
+    }
+
+    private IncomingKafkaRecord<String, String> record(long offset) {
+        ConsumerRecord<String, String> cr = new ConsumerRecord<>("topic", 1, offset, "key", "payload");
+        KafkaConsumerRecord<String, String> kcr = new KafkaConsumerRecord<>(new KafkaConsumerRecordImpl<>(cr));
+        KafkaCommitHandler commitHandler = new KafkaCommitHandler() {
+            @Override
+            public <K, V> CompletionStage<Void> handle(IncomingKafkaRecord<K, V> record) {
+                recordAcks.incrementAndGet();
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+        return new IncomingKafkaRecord<>(kcr, commitHandler, null);
+    }
+}
@@ -0,0 +1,101 @@
+package com.redhat.erdemo.responder.consumer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class OrderedExecutorTest {
+
+    private OrderedExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testTasksWithSameKeyRunInOrder() throws Exception {
+        executor = new OrderedExecutor("test", 4, 1000);
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int value = i;
+            futures.add(executor.submit("1", () -> {
+                executed.add(value);
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 500; i++) {
+            assertThat(executed.get(i), equalTo(i));
+        }
+    }
+
+    @Test
+    void testTasksWithDifferentKeysRunInParallel() throws Exception {
+        executor = new OrderedExecutor("test", 2, 10);
+        CountDownLatch blocked = new CountDownLatch(1);
+        String key1 = "1";
+        String key2 = "2";
+        CompletableFuture<Void> blocking = executor.submit(key1, () -> {
+            await(blocked);
+            return null;
+        });
+
+        CompletableFuture<String> other = executor.submit(key2, () -> "done");
+
+        assertThat(other.get(5, TimeUnit.SECONDS), equalTo("done"));
+        assertThat(blocking.isDone(), equalTo(false));
+        blocked.countDown();
+        blocking.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testLaneCapacity() throws Exception {
+        executor = new OrderedExecutor("test", 1, 2);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit("1", () -> {
+            started.countDown();
+            await(blocked);
+            return null;
+        });
+        started.await(5, TimeUnit.SECONDS);
+
+        executor.submit("1", () -> null);
+        assertThat(executor.hasCapacity("1"), equalTo(true));
+        executor.submit("1", () -> null);
+        assertThat(executor.hasCapacity("1"), equalTo(false));
+        assertThat(executor.depth(0), equalTo(2));
+
+        CompletableFuture<Void> rejected = executor.submit("1", () -> null);
+        try {
+            rejected.get();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(RejectedExecutionException.class));
+        }
+        assertThat(rejected.isCompletedExceptionally(), equalTo(true));
+        blocked.countDown();
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.redhat.erdemo.responder.consumer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PriorityGateTest {
+
+    private PriorityGate gate;
+
+    @BeforeEach
+    void init() {
+        MetricRegistry metricRegistry = mock(MetricRegistry.class);
+        when(metricRegistry.timer(any(Metadata.class), any(Tag.class))).thenReturn(mock(Timer.class));
+        gate = new PriorityGate();
+        gate.enabled = true;
+        gate.permits = 3;
+        gate.reserved = 1;
+        gate.metricRegistry = metricRegistry;
+        gate.init();
+    }
+
+    @Test
+    void testReservedPermitsForPriority() throws Exception {
+        gate.acquire(false);
+        gate.acquire(false);
+
+        // the shared permits are used up
+        CountDownLatch bulk = acquireAsync(false);
+        assertThat(bulk.await(100, TimeUnit.MILLISECONDS), equalTo(false));
+
+        gate.acquire(true);
+        assertThat(gate.inUse(), equalTo(3));
+
+        gate.release();
+        gate.release();
+        assertThat(bulk.await(1, TimeUnit.SECONDS), equalTo(true));
+    }
+
+    @Test
+    void testBulkWaitsWhilePriorityWaits() throws Exception {
+        gate.acquire(true);
+        gate.acquire(true);
+        gate.acquire(true);
+
+        CountDownLatch priority = acquireAsync(true);
+        CountDownLatch bulk = acquireAsync(false);
+        Thread.sleep(100);
+        assertThat(priority.getCount(), equalTo(1L));
+
+        gate.release();
+        assertThat(priority.await(1, TimeUnit.SECONDS), equalTo(true));
+        // 3 permits in use again, and the bulk task may only use 2
+        gate.release();
+        gate.release();
+        assertThat(bulk.await(100, TimeUnit.MILLISECONDS), equalTo(true));
+    }
+
+    @Test
+    void testDisabled() {
+        gate.enabled = false;
+
+        assertThat(gate.call(false, () -> gate.inUse()), equalTo(0));
+        gate.enabled = true;
+        assertThat(gate.call(false, () -> gate.inUse()), equalTo(1));
+        assertThat(gate.inUse(), equalTo(0));
+    }
+
+    private CountDownLatch acquireAsync(boolean priority) {
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                gate.acquire(priority);
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return acquired;
+    }
+
+    @Test
+    void testInvalidReservedPermits() {
+        PriorityGate invalid = new PriorityGate();
+        invalid.permits = 3;
+        invalid.reserved = 3;
+        assertThrows(IllegalArgumentException.class, () -> invalid.onStart(null));
+
+        invalid.reserved = -1;
+        assertThrows(IllegalArgumentException.class, () -> invalid.onStart(null));
+    }
+}
@@ -0,0 +1,108 @@
+package com.redhat.erdemo.responder.consumer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class RecordBatcherTest {
+
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<String> fallbacks = Collections.synchronizedList(new ArrayList<>());
+
+    private RecordBatcher<String> batcher;
+
+    @AfterEach
+    void shutdown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void testFlushAcksMessagesAfterBatchIsProcessed() {
+
+        batcher = new RecordBatcher<>("test", 100, 60000, batches::add, fallbacks::add);
+
+        Message<String> message1 = message();
+        Message<String> message2 = message();
+        Message<String> message3 = message();
+
+        CompletionStage<Void> ack1 = added(batcher.add("1", message1));
+        CompletionStage<Void> ack2 = added(batcher.add(null, message2));
+        CompletionStage<Void> ack3 = added(batcher.add("3", message3));
+
+        verify(message1, never()).ack();
+        assertThat(ack1.toCompletableFuture().isDone(), equalTo(false));
+
+        batcher.flush();
+
+        assertThat(batches.size(), equalTo(1));
+        assertThat(batches.get(0), equalTo(Arrays.asList("1", "3")));
+        verify(message1).ack();
+        verify(message2).ack();
+        verify(message3).ack();
+        assertThat(ack1.toCompletableFuture().isDone(), equalTo(true));
+        assertThat(ack2.toCompletableFuture().isDone(), equalTo(true));
+        assertThat(ack3.toCompletableFuture().isDone(), equalTo(true));
+        assertThat(fallbacks.isEmpty(), equalTo(true));
+    }
+
+    @Test
+    void testFlushWhenMaxSizeIsReached() throws Exception {
+
+        batcher = new RecordBatcher<>("test", 2, 60000, batches::add, fallbacks::add);
+
+        assertThat(batcher.add("1", message()).toCompletableFuture().isDone(), equalTo(true));
+        // the batch is full: accepted once it is flushed
+        CompletionStage<Void> ack = batcher.add("2", message()).toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+        assertThat(ack.toCompletableFuture().isDone(), equalTo(true));
+        assertThat(batches.size(), equalTo(1));
+        assertThat(batches.get(0), equalTo(Arrays.asList("1", "2")));
+    }
+
+    @Test
+    void testFallbackWhenBatchFails() {
+
+        batcher = new RecordBatcher<>("test", 100, 60000, batch -> {
+            throw new IllegalStateException();
+        }, fallbacks::add);
+
+        Message<String> message1 = message();
+        Message<String> message2 = message();
+
+        batcher.add("1", message1);
+        batcher.add("2", message2);
+        batcher.flush();
+
+        assertThat(fallbacks, equalTo(Arrays.asList("1", "2")));
+        verify(message1).ack();
+        verify(message2).ack();
+    }
+
+    private CompletionStage<Void> added(CompletionStage<CompletionStage<Void>> added) {
+        assertThat(added.toCompletableFuture().isDone(), equalTo(true));
+        return added.toCompletableFuture().join();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Message<String> message() {
+        Message<String> message = mock(Message.class);
+        when(message.ack()).thenReturn(CompletableFuture.completedFuture(null));
+        return message;
+    }
+}
@@ -0,0 +1,170 @@
+package com.redhat.erdemo.responder.consumer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import com.redhat.erdemo.responder.model.Responder;
+import com.redhat.erdemo.responder.service.LocationThrottle;
+import com.redhat.erdemo.responder.service.ResponderService;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ResponderLocationBufferTest {
+
+    private ResponderLocationBuffer buffer;
+
+    private ResponderService responderService;
+
+    @BeforeEach
+    void init() {
+        responderService = mock(ResponderService.class);
+        buffer = new ResponderLocationBuffer();
+        buffer.responderService = responderService;
+        buffer.priorityGate = new PriorityGate();
+        buffer.throttle = new LocationThrottle();
+        buffer.maxEntries = 100;
+        buffer.maxMessages = 100;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlushKeepsNewestLocationPerResponder() {
+
+        Message<String> message1 = message();
+        Message<String> message2 = message();
+        Message<String> message3 = message();
+
+        CompletionStage<Void> ack1 = added(buffer.add(location("1", "30.12345", "-70.98765"), message1));
+        CompletionStage<Void> ack2 = added(buffer.add(location("1", "30.23456", "-70.87654"), message2));
+        CompletionStage<Void> ack3 = added(buffer.add(location("2", "31.12345", "-71.98765"), message3));
+
+        assertThat(buffer.size(), equalTo(2));
+        verify(message1, never()).ack();
+        assertThat(ack1.toCompletableFuture().isDone(), equalTo(false));
+
+        buffer.flush();
+
+        ArgumentCaptor<List<Responder>> captor = ArgumentCaptor.forClass(List.class);
+        verify(responderService).updateResponderLocations(captor.capture());
+        List<Responder> flushed = captor.getValue();
+        assertThat(flushed.size(), equalTo(2));
+        Responder responder1 = flushed.stream().filter(r -> r.getId().equals("1")).findFirst().orElse(null);
+        assertThat(responder1.getLatitude(), equalTo(new BigDecimal("30.23456")));
+        assertThat(responder1.getLongitude(), equalTo(new BigDecimal("-70.87654")));
+
+        verify(message1).ack();
+        verify(message2).ack();
+        verify(message3).ack();
+        assertThat(ack1.toCompletableFuture().isDone(), equalTo(true));
+        assertThat(ack2.toCompletableFuture().isDone(), equalTo(true));
+        assertThat(ack3.toCompletableFuture().isDone(), equalTo(true));
+        assertThat(buffer.size(), equalTo(0));
+    }
+
+    @Test
+    void testAckOnlyMessageIsDeferredUntilFlush() {
+
+        Message<String> message1 = message();
+        Message<String> message2 = message();
+
+        buffer.add(location("1", "30.12345", "-70.98765"), message1);
+        CompletionStage<Void> ack2 = added(buffer.add(null, message2));
+
+        verify(message2, never()).ack();
+        assertThat(ack2.toCompletableFuture().isDone(), equalTo(false));
+
+        buffer.flush();
+
+        verify(message2).ack();
+        assertThat(ack2.toCompletableFuture().isDone(), equalTo(true));
+    }
+
+    @Test
+    void testFlushWithoutLocationsDoesNotHitDatabase() {
+
+        Message<String> message = message();
+        buffer.add(null, message);
+
+        buffer.flush();
+
+        verify(responderService, never()).updateResponderLocations(anyList());
+        verify(message).ack();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedFlushIsRetried() {
+
+        Message<String> message1 = message();
+        Message<String> message2 = message();
+
+        buffer.add(location("1", "30.12345", "-70.98765"), message1);
+        doThrow(new RuntimeException("database unavailable")).when(responderService).updateResponderLocations(anyList());
+
+        buffer.flush();
+
+        verify(message1, never()).ack();
+        assertThat(buffer.size(), equalTo(1));
+
+        buffer.add(location("1", "30.23456", "-70.87654"), message2);
+        doThrow(new RuntimeException()).doReturn(Collections.emptyList()).when(responderService).updateResponderLocations(anyList());
+
+        buffer.flush();
+        buffer.flush();
+
+        ArgumentCaptor<List<Responder>> captor = ArgumentCaptor.forClass(List.class);
+        verify(responderService, times(3)).updateResponderLocations(captor.capture());
+        List<Responder> flushed = captor.getValue();
+        assertThat(flushed.size(), equalTo(1));
+        assertThat(flushed.get(0).getLatitude(), equalTo(new BigDecimal("30.23456")));
+        verify(message1).ack();
+        verify(message2).ack();
+    }
+
+    @Test
+    void testFullBufferHoldsUntilFlushed() {
+
+        buffer.maxMessages = 3;
+        added(buffer.add(location("1", "30.12345", "-70.98765"), message()));
+        added(buffer.add(location("1", "30.23456", "-70.87654"), message()));
+        CompletionStage<CompletionStage<Void>> third = buffer.add(location("1", "30.34567", "-70.76543"), message());
+
+        assertThat(third.toCompletableFuture().isDone(), equalTo(false));
+
+        buffer.flush();
+
+        assertThat(third.toCompletableFuture().isDone(), equalTo(true));
+        assertThat(third.toCompletableFuture().join().toCompletableFuture().isDone(), equalTo(true));
+    }
+
+    private CompletionStage<Void> added(CompletionStage<CompletionStage<Void>> added) {
+        assertThat(added.toCompletableFuture().isDone(), equalTo(true));
+        return added.toCompletableFuture().join();
+    }
+
+    private Responder location(String id, String lat, String lon) {
+        return new Responder.Builder(id).latitude(new BigDecimal(lat)).longitude(new BigDecimal(lon)).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Message<String> message() {
+        Message<String> message = mock(Message.class);
+        when(message.ack()).thenReturn(CompletableFuture.completedFuture(null));
+        return message;
+    }
+}
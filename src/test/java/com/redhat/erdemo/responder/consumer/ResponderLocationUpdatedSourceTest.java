@@ -5,16 +5,26 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import javax.inject.Inject;
 
 import com.redhat.erdemo.responder.model.Responder;
+import com.redhat.erdemo.responder.service.LocationThrottle;
 import com.redhat.erdemo.responder.service.ResponderService;
+import com.redhat.erdemo.responder.service.ResponderTrackStore;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
 import io.smallrye.mutiny.Uni;
@@ -31,6 +41,8 @@ import io.vertx.kafka.client.consumer.impl.KafkaReadStreamImpl;
 import io.vertx.mutiny.kafka.client.consumer.KafkaConsumer;
 import io.vertx.mutiny.kafka.client.consumer.KafkaConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.record.TimestampType;
+import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -42,6 +54,15 @@ public class ResponderLocationUpdatedSourceTest {
     @InjectMock
     ResponderService responderService;
 
+    @InjectMock
+    ResponderLocationBuffer locationBuffer;
+
+    @InjectMock
+    LocationThrottle throttle;
+
+    @InjectMock
+    ResponderTrackStore trackStore;
+
     @Inject
     ResponderLocationUpdatedSource source;
 
@@ -71,7 +92,7 @@ public class ResponderLocationUpdatedSourceTest {
 
 
         CompletionStage<CompletionStage<Void>> c =  source.onMessage(toRecord("64", json));
-        c.toCompletableFuture().get();
+        c.toCompletableFuture().get().toCompletableFuture().get();
 
         verify(responderService).updateResponderLocation(responderCaptor.capture());
         Responder captured = responderCaptor.getValue();
@@ -105,7 +126,7 @@ public class ResponderLocationUpdatedSourceTest {
                 "}";
 
         CompletionStage<CompletionStage<Void>> c =  source.onMessage(toRecord("64", json));
-        c.toCompletableFuture().get();
+        c.toCompletableFuture().get().toCompletableFuture().get();
 
         verify(responderService, never()).updateResponderLocation(any(Responder.class));
         assertThat(messageAck, equalTo(true));
@@ -124,18 +145,158 @@ public class ResponderLocationUpdatedSourceTest {
                 "}";
 
         CompletionStage<CompletionStage<Void>> c =  source.onMessage(toRecord("64", json));
-        c.toCompletableFuture().get();
+        c.toCompletableFuture().get().toCompletableFuture().get();
 
         verify(responderService, never()).updateResponderLocation(any(Responder.class));
         assertThat(messageAck, equalTo(true));
     }
 
-    private IncomingKafkaRecord<String, String> toRecord(String key, String payload) {
+    @Test
+    void testResponderLocationUpdatedWriteBehind() throws ExecutionException, InterruptedException {
+        String json = "{\n" +
+                "  \"responderId\": \"64\",\n" +
+                "  \"missionId\": \"f5a9bc5e-408c-4f86-8592-6f67bb73c5fd\",\n" +
+                "  \"incidentId\": \"5d9b2d3a-136f-414f-96ba-1b2a445fee5d\",\n" +
+                "  \"status\": \"MOVING\",\n" +
+                "  \"lat\": 34.1701,\n" +
+                "  \"lon\": -77.9482,\n" +
+                "  \"human\": false,\n" +
+                "  \"continue\": true\n" +
+                "}";
+
+        when(locationBuffer.isEnabled()).thenReturn(true);
+        when(locationBuffer.add(any(), any())).thenReturn(CompletableFuture.completedFuture(CompletableFuture.completedFuture(null)));
+
+        IncomingKafkaRecord<String, byte[]> record = toRecord("64", json);
+        CompletionStage<CompletionStage<Void>> c =  source.onMessage(record);
+        c.toCompletableFuture().get().toCompletableFuture().get();
+
+        verify(locationBuffer).add(responderCaptor.capture(), eq(record));
+        Responder captured = responderCaptor.getValue();
+        assertThat(captured.getId(), equalTo("64"));
+        assertThat(captured.getLatitude().toString(), equalTo("34.1701"));
+        assertThat(captured.getLongitude().toString(), equalTo("-77.9482"));
+        verify(responderService, never()).updateResponderLocation(any(Responder.class));
+        assertThat(messageAck, equalTo(false));
+    }
+
+    @Test
+    void testResponderLocationUpdateEventStatusNotMovingWriteBehind() throws ExecutionException, InterruptedException {
+        String json = "{\n" +
+                "  \"responderId\": \"64\",\n" +
+                "  \"status\": \"DROPPED\",\n" +
+                "  \"lat\": 34.1701,\n" +
+                "  \"lon\": -77.9482\n" +
+                "}";
+
+        when(locationBuffer.isEnabled()).thenReturn(true);
+        when(locationBuffer.add(any(), any())).thenReturn(CompletableFuture.completedFuture(CompletableFuture.completedFuture(null)));
+
+        IncomingKafkaRecord<String, byte[]> record = toRecord("64", json);
+        CompletionStage<CompletionStage<Void>> c =  source.onMessage(record);
+        c.toCompletableFuture().get().toCompletableFuture().get();
+
+        verify(locationBuffer).add(isNull(), eq(record));
+        verify(responderService, never()).updateResponderLocation(any(Responder.class));
+    }
+
+    @Test
+    void testResponderLocationUpdatedDroppedByThrottle() throws ExecutionException, InterruptedException {
+        String json = "{\n" +
+                "  \"responderId\": \"64\",\n" +
+                "  \"status\": \"MOVING\",\n" +
+                "  \"lat\": 34.1701,\n" +
+                "  \"lon\": -77.9482\n" +
+                "}";
+
+        when(throttle.isEnabled()).thenReturn(true);
+        when(throttle.accept(anyLong(), anyDouble(), anyDouble())).thenReturn(false);
+
+        CompletionStage<CompletionStage<Void>> c =  source.onMessage(toRecord("64", json));
+        c.toCompletableFuture().get().toCompletableFuture().get();
+
+        verify(throttle).accept(64L, 34.1701, -77.9482);
+        verify(responderService, never()).updateResponderLocation(any(Responder.class));
+        assertThat(messageAck, equalTo(true));
+    }
+
+    @Test
+    void testResponderLocationUpdatedTracked() throws ExecutionException, InterruptedException {
+        String json = "{\n" +
+                "  \"responderId\": \"64\",\n" +
+                "  \"status\": \"MOVING\",\n" +
+                "  \"lat\": 34.1701,\n" +
+                "  \"lon\": -77.9482\n" +
+                "}";
+
+        when(trackStore.isEnabled()).thenReturn(true);
+
+        CompletionStage<CompletionStage<Void>> c =  source.onMessage(toRecord("64", json, 1600000000000L));
+        c.toCompletableFuture().get().toCompletableFuture().get();
+
+        verify(trackStore).record(64L, 34.1701, -77.9482, 1600000000000L);
+        verify(responderService).updateResponderLocation(any(Responder.class));
+    }
+
+    @Test
+    void testResponderLocationUpdatedCatchUp() throws ExecutionException, InterruptedException {
+        String json = "{\n" +
+                "  \"responderId\": \"64\",\n" +
+                "  \"status\": \"MOVING\",\n" +
+                "  \"lat\": 34.1701,\n" +
+                "  \"lon\": -77.9482\n" +
+                "}";
+
+        ResponderLocationUpdatedSource catchUpSource = new ResponderLocationUpdatedSource();
+        catchUpSource.responderService = responderService;
+        catchUpSource.locationBuffer = locationBuffer;
+        catchUpSource.throttle = throttle;
+        catchUpSource.trackStore = trackStore;
+        catchUpSource.metricRegistry = mock(MetricRegistry.class);
+        catchUpSource.offsetCommitter = new OffsetCommitter();
+        catchUpSource.priorityGate = new PriorityGate();
+        catchUpSource.lanes = 1;
+        catchUpSource.laneCapacity = 10;
+        catchUpSource.catchUpEnabled = true;
+        catchUpSource.catchUpEnterLagMs = 60000;
+        catchUpSource.catchUpExitLagMs = 5000;
+        catchUpSource.init();
+
+        when(locationBuffer.add(any(), any())).thenReturn(CompletableFuture.completedFuture(CompletableFuture.completedFuture(null)));
+
+        try {
+            // old record: compacted through the location buffer
+            IncomingKafkaRecord<String, byte[]> record = toRecord("64", json, System.currentTimeMillis() - 120000);
+            catchUpSource.onMessage(record).toCompletableFuture().get().toCompletableFuture().get();
+
+            verify(locationBuffer).start();
+            verify(locationBuffer).add(responderCaptor.capture(), eq(record));
+            assertThat(responderCaptor.getValue().getId(), equalTo("64"));
+            verify(responderService, never()).updateResponderLocation(any(Responder.class));
+
+            // recent record: back to processing one by one
+            catchUpSource.onMessage(toRecord("64", json, System.currentTimeMillis())).toCompletableFuture().get().toCompletableFuture().get();
+
+            verify(locationBuffer).requestFlush();
+            verify(responderService).updateResponderLocation(any(Responder.class));
+            assertThat(messageAck, equalTo(true));
+        } finally {
+            catchUpSource.shutdown();
+        }
+    }
+
+    private IncomingKafkaRecord<String, byte[]> toRecord(String key, String payload) {
+        return toRecord(key, payload, ConsumerRecord.NO_TIMESTAMP);
+    }
+
+    private IncomingKafkaRecord<String, byte[]> toRecord(String key, String payload, long timestamp) {
 
-        MockKafkaConsumer<String, String> mc = new MockKafkaConsumer<>();
-        KafkaConsumer<String, String> c = new KafkaConsumer<>(mc);
-        ConsumerRecord<String, String> cr = new ConsumerRecord<>("topic", 1, 100, key, payload);
-        KafkaConsumerRecord<String, String> kcr = new KafkaConsumerRecord<>(new KafkaConsumerRecordImpl<>(cr));
+        MockKafkaConsumer<String, byte[]> mc = new MockKafkaConsumer<>();
+        KafkaConsumer<String, byte[]> c = new KafkaConsumer<>(mc);
+        ConsumerRecord<String, byte[]> cr = new ConsumerRecord<>("topic", 1, 100, timestamp, TimestampType.CREATE_TIME,
+                (long) ConsumerRecord.NULL_CHECKSUM, ConsumerRecord.NULL_SIZE, ConsumerRecord.NULL_SIZE, key,
+                payload.getBytes(StandardCharsets.UTF_8));
+        KafkaConsumerRecord<String, byte[]> kcr = new KafkaConsumerRecord<>(new KafkaConsumerRecordImpl<>(cr));
         KafkaCommitHandler kch = new KafkaCommitHandler() {
             @Override
             public <K, V> CompletionStage<Void> handle(IncomingKafkaRecord<K, V> record) {
@@ -143,7 +304,7 @@ public class ResponderLocationUpdatedSourceTest {
                 return uni.subscribeAsCompletionStage();
             }
         };
-        return new IncomingKafkaRecord<String, String>(kcr, kch, null);
+        return new IncomingKafkaRecord<String, byte[]>(kcr, kch, null);
     }
 
     private class MockKafkaConsumer<K, V> extends KafkaConsumerImpl<K, V> {
@@ -5,20 +5,28 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 
 import com.redhat.erdemo.responder.model.Responder;
 import com.redhat.erdemo.responder.service.EventPublisher;
+import com.redhat.erdemo.responder.service.LocationThrottle;
+import com.redhat.erdemo.responder.service.ProcessedMessageCache;
 import com.redhat.erdemo.responder.service.ResponderService;
+import com.redhat.erdemo.responder.service.ResponderTrackStore;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
 import io.smallrye.mutiny.Uni;
@@ -37,6 +45,13 @@ import io.vertx.mutiny.kafka.client.consumer.KafkaConsumerRecord;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
 import org.apache.commons.lang3.tuple.Triple;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -55,6 +70,9 @@ public class ResponderUpdateCommandSourceTest {
     @InjectMock
     EventPublisher eventPublisher;
 
+    @InjectMock
+    ProcessedMessageCache processedMessages;
+
     @Captor
     ArgumentCaptor<Responder> responderCaptor;
 
@@ -99,12 +117,12 @@ public class ResponderUpdateCommandSourceTest {
                 .available(false)
                 .build();
 
-        when(responderService.updateResponder(any(Responder.class))).thenReturn(new ImmutableTriple<>(true, "ok", updated));
+        when(responderService.updateResponder(any(Responder.class), anyList())).thenReturn(new ImmutableTriple<>(true, "ok", updated));
 
         CompletionStage<CompletionStage<Void>> c =  source.onMessage(toRecord("1", json));
-        c.toCompletableFuture().get();
+        c.toCompletableFuture().get().toCompletableFuture().get();
 
-        verify(responderService).updateResponder(responderCaptor.capture());
+        verify(responderService).updateResponder(responderCaptor.capture(), anyList());
         Responder captured = responderCaptor.getValue();
         assertThat(captured, notNullValue());
         assertThat(captured.getId(), equalTo("1"));
@@ -149,12 +167,12 @@ public class ResponderUpdateCommandSourceTest {
                 .medicalKit(true)
                 .available(false)
                 .build();
-        when(responderService.updateResponder(any(Responder.class))).thenReturn(new ImmutableTriple<>(true, "ok", updated));
+        when(responderService.updateResponder(any(Responder.class), anyList())).thenReturn(new ImmutableTriple<>(true, "ok", updated));
 
         CompletionStage<CompletionStage<Void>> c =  source.onMessage(toRecord("1", json));
-        c.toCompletableFuture().get();
+        c.toCompletableFuture().get().toCompletableFuture().get();
 
-        verify(responderService).updateResponder(responderCaptor.capture());
+        verify(responderService).updateResponder(responderCaptor.capture(), anyList());
         Responder captured = responderCaptor.getValue();
         assertThat(captured, notNullValue());
         assertThat(captured.getId(), equalTo("1"));
@@ -170,6 +188,261 @@ public class ResponderUpdateCommandSourceTest {
         assertThat(messageAck, equalTo(true));
     }
 
+    @Test
+    void testProcessMessageAlreadyProcessed() throws ExecutionException, InterruptedException {
+        String json = "{\"messageType\" : \"UpdateResponderCommand\"," +
+                "\"id\" : \"messageId\"," +
+                "\"header\" : {\"incidentId\" : \"incident\"}," +
+                "\"body\" : {\"responder\" : {\"id\" : \"1\", \"available\" : false}}" +
+                "}";
+
+        when(processedMessages.isEnabled()).thenReturn(true);
+        when(processedMessages.isProcessed("messageId")).thenReturn(true);
+
+        CompletionStage<CompletionStage<Void>> c =  source.onMessage(toRecord("1", json));
+        c.toCompletableFuture().get().toCompletableFuture().get();
+
+        verify(responderService, never()).updateResponder(any(Responder.class), anyList());
+        verify(eventPublisher, never()).responderUpdated(any(Triple.class), any(Map.class));
+        assertThat(messageAck, equalTo(true));
+    }
+
+    @Test
+    void testProcessMessageMarkedAsProcessed() throws ExecutionException, InterruptedException {
+        String json = "{\"messageType\" : \"UpdateResponderCommand\"," +
+                "\"id\" : \"messageId\"," +
+                "\"body\" : {\"responder\" : {\"id\" : \"1\", \"available\" : false}}" +
+                "}";
+
+        when(processedMessages.isEnabled()).thenReturn(true);
+        when(processedMessages.isProcessed("messageId")).thenReturn(false);
+        when(responderService.updateResponder(any(Responder.class), anyList())).thenReturn(new ImmutableTriple<>(true, "ok", new Responder.Builder("1").build()));
+
+        CompletionStage<CompletionStage<Void>> c =  source.onMessage(toRecord("1", json));
+        c.toCompletableFuture().get().toCompletableFuture().get();
+
+        verify(responderService).updateResponder(any(Responder.class), Mockito.eq(Collections.singletonList("messageId")));
+        assertThat(messageAck, equalTo(true));
+    }
+
+    @Test
+    void testProcessMergedMessages() throws Exception {
+
+        ResponderUpdateCommandSource mergingSource = new ResponderUpdateCommandSource();
+        mergingSource.responderService = responderService;
+        mergingSource.eventPublisher = eventPublisher;
+        mergingSource.processedMessages = processedMessages;
+        mergingSource.metricRegistry = Mockito.mock(MetricRegistry.class);
+        mergingSource.offsetCommitter = new OffsetCommitter();
+        mergingSource.priorityGate = new PriorityGate();
+        mergingSource.lanes = 1;
+        mergingSource.laneCapacity = 10;
+        mergingSource.mergeEnabled = true;
+        mergingSource.init();
+
+        // keeps the lane busy until the other commands are queued
+        CountDownLatch latch = new CountDownLatch(1);
+        when(responderService.updateResponder(any(Responder.class), anyList())).thenAnswer(invocation -> {
+            Responder responder = invocation.getArgument(0);
+            if (responder.getId().equals("2")) {
+                latch.await(5, TimeUnit.SECONDS);
+            }
+            return new ImmutableTriple<>(true, "ok", responder);
+        });
+
+        try {
+            CompletionStage<CompletionStage<Void>> c1 = mergingSource.onMessage(toRecord("2", command("message1", "incident1", "{\"id\" : \"2\", \"available\" : false}")));
+            CompletionStage<CompletionStage<Void>> c2 = mergingSource.onMessage(toRecord("1", command("message2", "incident2", "{\"id\" : \"1\", \"available\" : false}")));
+            CompletionStage<CompletionStage<Void>> c3 = mergingSource.onMessage(toRecord("1", command("message3", "incident3", "{\"id\" : \"1\", \"enrolled\" : true}")));
+            latch.countDown();
+            c1.toCompletableFuture().get().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            c2.toCompletableFuture().get().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            c3.toCompletableFuture().get().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        } finally {
+            mergingSource.shutdown();
+        }
+
+        verify(responderService, Mockito.times(2)).updateResponder(responderCaptor.capture(), anyList());
+        Responder merged = responderCaptor.getAllValues().get(1);
+        assertThat(merged.getId(), equalTo("1"));
+        assertThat(merged.isAvailable(), equalTo(false));
+        assertThat(merged.isEnrolled(), equalTo(true));
+
+        verify(eventPublisher, Mockito.times(3)).responderUpdated(any(Triple.class), headerCaptor.capture());
+        assertThat(headerCaptor.getAllValues().get(0).get("incidentId"), equalTo("incident1"));
+        assertThat(headerCaptor.getAllValues().get(1).get("incidentId"), equalTo("incident2"));
+        assertThat(headerCaptor.getAllValues().get(2).get("incidentId"), equalTo("incident3"));
+    }
+
+    @Test
+    void testProcessMergedAssignmentAndRelease() throws Exception {
+
+        ResponderUpdateCommandSource mergingSource = new ResponderUpdateCommandSource();
+        mergingSource.responderService = responderService;
+        mergingSource.eventPublisher = eventPublisher;
+        mergingSource.processedMessages = processedMessages;
+        mergingSource.metricRegistry = Mockito.mock(MetricRegistry.class);
+        mergingSource.offsetCommitter = new OffsetCommitter();
+        mergingSource.priorityGate = new PriorityGate();
+        mergingSource.lanes = 1;
+        mergingSource.laneCapacity = 10;
+        mergingSource.mergeEnabled = true;
+        mergingSource.init();
+
+        // the responder is available in the database, a merged update of both commands would not change it
+        CountDownLatch latch = new CountDownLatch(1);
+        when(responderService.updateResponder(any(Responder.class), anyList())).thenAnswer(invocation -> {
+            Responder responder = invocation.getArgument(0);
+            if (responder.getId().equals("2")) {
+                latch.await(5, TimeUnit.SECONDS);
+            }
+            return new ImmutableTriple<>(true, "Responder updated", responder);
+        });
+
+        try {
+            CompletionStage<CompletionStage<Void>> c1 = mergingSource.onMessage(toRecord("2", command("message1", "incident1", "{\"id\" : \"2\", \"available\" : false}")));
+            CompletionStage<CompletionStage<Void>> c2 = mergingSource.onMessage(toRecord("1", command("message2", "incident2", "{\"id\" : \"1\", \"available\" : false}")));
+            CompletionStage<CompletionStage<Void>> c3 = mergingSource.onMessage(toRecord("1", command("message3", "incident3", "{\"id\" : \"1\", \"available\" : true}")));
+            latch.countDown();
+            c1.toCompletableFuture().get().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            c2.toCompletableFuture().get().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            c3.toCompletableFuture().get().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        } finally {
+            mergingSource.shutdown();
+        }
+
+        verify(responderService, Mockito.times(3)).updateResponder(responderCaptor.capture(), anyList());
+        assertThat(responderCaptor.getAllValues().get(1).isAvailable(), equalTo(false));
+        assertThat(responderCaptor.getAllValues().get(2).isAvailable(), equalTo(true));
+
+        verify(eventPublisher, Mockito.times(3)).responderUpdated(tripleCaptor.capture(), headerCaptor.capture());
+        assertThat(headerCaptor.getAllValues().get(1).get("incidentId"), equalTo("incident2"));
+        assertThat(tripleCaptor.getAllValues().get(1).getLeft(), equalTo(true));
+        assertThat(tripleCaptor.getAllValues().get(1).getRight().isAvailable(), equalTo(false));
+        assertThat(headerCaptor.getAllValues().get(2).get("incidentId"), equalTo("incident3"));
+        assertThat(tripleCaptor.getAllValues().get(2).getLeft(), equalTo(true));
+        assertThat(tripleCaptor.getAllValues().get(2).getRight().isAvailable(), equalTo(true));
+    }
+
+    @Test
+    void testProcessMergedMessagesWithSameMessageId() throws Exception {
+
+        ResponderUpdateCommandSource mergingSource = new ResponderUpdateCommandSource();
+        mergingSource.responderService = responderService;
+        mergingSource.eventPublisher = eventPublisher;
+        mergingSource.processedMessages = processedMessages;
+        mergingSource.metricRegistry = Mockito.mock(MetricRegistry.class);
+        mergingSource.offsetCommitter = new OffsetCommitter();
+        mergingSource.priorityGate = new PriorityGate();
+        mergingSource.lanes = 1;
+        mergingSource.laneCapacity = 10;
+        mergingSource.mergeEnabled = true;
+        mergingSource.init();
+
+        when(processedMessages.isEnabled()).thenReturn(true);
+        CountDownLatch latch = new CountDownLatch(1);
+        when(responderService.updateResponder(any(Responder.class), anyList())).thenAnswer(invocation -> {
+            Responder responder = invocation.getArgument(0);
+            if (responder.getId().equals("2")) {
+                latch.await(5, TimeUnit.SECONDS);
+            }
+            return new ImmutableTriple<>(true, "ok", responder);
+        });
+
+        try {
+            CompletionStage<CompletionStage<Void>> c1 = mergingSource.onMessage(toRecord("2", command("message1", "incident1", "{\"id\" : \"2\", \"available\" : false}")));
+            CompletionStage<CompletionStage<Void>> c2 = mergingSource.onMessage(toRecord("1", command("message2", "incident2", "{\"id\" : \"1\", \"available\" : false}")));
+            CompletionStage<CompletionStage<Void>> c3 = mergingSource.onMessage(toRecord("1", command("message2", "incident2", "{\"id\" : \"1\", \"available\" : false}")));
+            latch.countDown();
+            c1.toCompletableFuture().get().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            c2.toCompletableFuture().get().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            c3.toCompletableFuture().get().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        } finally {
+            mergingSource.shutdown();
+        }
+
+        verify(responderService).updateResponder(any(Responder.class), Mockito.eq(Collections.singletonList("message2")));
+        verify(eventPublisher, Mockito.times(2)).responderUpdated(any(Triple.class), any(Map.class));
+    }
+
+    @Test
+    void testIncidentCommandPassesLocationUpdatesWithDefaultPermits() throws Exception {
+
+        // the shipped defaults
+        MetricRegistry metricRegistry = Mockito.mock(MetricRegistry.class);
+        when(metricRegistry.timer(any(Metadata.class), any(Tag.class))).thenReturn(Mockito.mock(Timer.class));
+        PriorityGate gate = new PriorityGate();
+        gate.enabled = true;
+        gate.permits = 6;
+        gate.reserved = 2;
+        gate.lanes = 4;
+        gate.metricRegistry = metricRegistry;
+        gate.init();
+
+        ResponderLocationUpdatedSource locationSource = new ResponderLocationUpdatedSource();
+        locationSource.responderService = responderService;
+        locationSource.locationBuffer = Mockito.mock(ResponderLocationBuffer.class);
+        locationSource.throttle = new LocationThrottle();
+        locationSource.trackStore = new ResponderTrackStore();
+        locationSource.metricRegistry = metricRegistry;
+        locationSource.offsetCommitter = new OffsetCommitter();
+        locationSource.priorityGate = gate;
+        locationSource.lanes = 4;
+        locationSource.laneCapacity = 10;
+        locationSource.init();
+
+        ResponderUpdateCommandSource commandSource = new ResponderUpdateCommandSource();
+        commandSource.responderService = responderService;
+        commandSource.eventPublisher = eventPublisher;
+        commandSource.processedMessages = processedMessages;
+        commandSource.metricRegistry = metricRegistry;
+        commandSource.offsetCommitter = new OffsetCommitter();
+        commandSource.priorityGate = gate;
+        commandSource.lanes = 4;
+        commandSource.laneCapacity = 10;
+        commandSource.init();
+
+        CountDownLatch locations = new CountDownLatch(1);
+        when(responderService.updateResponderLocation(any(Responder.class))).thenAnswer(invocation -> {
+            locations.await(5, TimeUnit.SECONDS);
+            return new ImmutableTriple<>(true, "ok", invocation.getArgument(0));
+        });
+        when(responderService.updateResponder(any(Responder.class), anyList()))
+                .thenAnswer(invocation -> new ImmutableTriple<>(true, "ok", invocation.getArgument(0)));
+
+        try {
+            // one location update per lane takes all shared permits
+            for (String id : new String[]{"1", "2", "3", "4"}) {
+                locationSource.onMessage(toRecord(id, "{\"responderId\":\"" + id + "\",\"status\":\"MOVING\",\"lat\":34.17,\"lon\":-77.94}"));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (gate.inUse() < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(gate.inUse(), equalTo(4));
+
+            String other = "{\"messageType\" : \"UpdateResponderCommand\", \"id\" : \"message2\", \"header\" : {}, " +
+                    "\"body\" : {\"responder\" : {\"id\" : \"6\", \"enrolled\" : true}}}";
+            CompletionStage<CompletionStage<Void>> bulk = commandSource.onMessage(toRecord("6", other));
+            CompletionStage<CompletionStage<Void>> incident = commandSource.onMessage(toRecord("5", command("message1", "incident1", "{\"id\" : \"5\", \"available\" : false}")));
+
+            // the incident command uses a reserved permit, the other command waits for a shared one
+            verify(eventPublisher, Mockito.timeout(5000)).responderUpdated(any(Triple.class), any(Map.class));
+            verify(responderService).updateResponder(responderCaptor.capture(), anyList());
+            assertThat(responderCaptor.getValue().getId(), equalTo("5"));
+
+            locations.countDown();
+            // acks are in offset order, the incident command is acked after the other command
+            bulk.toCompletableFuture().get().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            incident.toCompletableFuture().get().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            verify(responderService, Mockito.times(2)).updateResponder(any(Responder.class), anyList());
+        } finally {
+            locations.countDown();
+            commandSource.shutdown();
+            locationSource.shutdown();
+        }
+    }
+
     @Test
     public void testProcessMessageWrongMessageType() throws ExecutionException, InterruptedException {
 
@@ -181,32 +454,61 @@ public class ResponderUpdateCommandSourceTest {
                 "}";
 
         CompletionStage<CompletionStage<Void>> c =  source.onMessage(toRecord("1", json));
-        c.toCompletableFuture().get();
+        c.toCompletableFuture().get().toCompletableFuture().get();
 
-        verify(responderService, never()).updateResponder(any(Responder.class));
+        verify(responderService, never()).updateResponder(any(Responder.class), anyList());
         verify(eventPublisher, never()).responderUpdated(any(Triple.class), any(Map.class));
         assertThat(messageAck, equalTo(true));
     }
 
+    @Test
+    public void testProcessMessageWrongMessageTypeHeader() throws ExecutionException, InterruptedException {
+        String json = "{\"messageType\" : \"UpdateResponderCommand\"," +
+                "\"id\" : \"messageId\"," +
+                "\"body\" : {\"responder\" : {\"id\" : \"1\", \"available\" : false}}" +
+                "}";
+        Headers headers = new RecordHeaders().add(MessageTypeFilter.HEADER, "SetResponderUnavailableCommand".getBytes(StandardCharsets.UTF_8));
+
+        CompletionStage<CompletionStage<Void>> c =  source.onMessage(toRecord("1", json, headers));
+        c.toCompletableFuture().get().toCompletableFuture().get();
+
+        verify(responderService, never()).updateResponder(any(Responder.class), anyList());
+        assertThat(messageAck, equalTo(true));
+    }
+
     @Test
     public void testProcessMessageWrongMessage() throws ExecutionException, InterruptedException {
         String json = "{\"field1\":\"value1\"," +
                 "\"field2\":\"value2\"}";
 
         CompletionStage<CompletionStage<Void>> c =  source.onMessage(toRecord("1", json));
-        c.toCompletableFuture().get();
+        c.toCompletableFuture().get().toCompletableFuture().get();
 
-        verify(responderService, never()).updateResponder(any(Responder.class));
+        verify(responderService, never()).updateResponder(any(Responder.class), anyList());
         verify(eventPublisher, never()).responderUpdated(any(Triple.class), any(Map.class));
         assertThat(messageAck, equalTo(true));
     }
 
-    private IncomingKafkaRecord<String, String> toRecord(String key, String payload) {
+    private String command(String id, String incidentId, String responder) {
+        return "{\"messageType\" : \"UpdateResponderCommand\"," +
+                "\"id\" : \"" + id + "\"," +
+                "\"header\" : {\"incidentId\" : \"" + incidentId + "\"}," +
+                "\"body\" : {\"responder\" : " + responder + "}" +
+                "}";
+    }
+
+    private IncomingKafkaRecord<String, byte[]> toRecord(String key, String payload) {
+        return toRecord(key, payload, new RecordHeaders());
+    }
+
+    private IncomingKafkaRecord<String, byte[]> toRecord(String key, String payload, Headers headers) {
 
-        MockKafkaConsumer<String, String> mc = new MockKafkaConsumer<>();
-        KafkaConsumer<String, String> c = new KafkaConsumer<>(mc);
-        ConsumerRecord<String, String> cr = new ConsumerRecord<>("topic", 1, 100, key, payload);
-        KafkaConsumerRecord<String, String> kcr = new KafkaConsumerRecord<>(new KafkaConsumerRecordImpl<>(cr));
+        MockKafkaConsumer<String, byte[]> mc = new MockKafkaConsumer<>();
+        KafkaConsumer<String, byte[]> c = new KafkaConsumer<>(mc);
+        ConsumerRecord<String, byte[]> cr = new ConsumerRecord<>("topic", 1, 100, ConsumerRecord.NO_TIMESTAMP,
+                TimestampType.NO_TIMESTAMP_TYPE, (long) ConsumerRecord.NULL_CHECKSUM, ConsumerRecord.NULL_SIZE,
+                ConsumerRecord.NULL_SIZE, key, payload.getBytes(StandardCharsets.UTF_8), headers);
+        KafkaConsumerRecord<String, byte[]> kcr = new KafkaConsumerRecord<>(new KafkaConsumerRecordImpl<>(cr));
         KafkaCommitHandler kch = new KafkaCommitHandler() {
             @Override
             public <K, V> CompletionStage<Void> handle(IncomingKafkaRecord<K, V> record) {
@@ -214,7 +516,7 @@ public class ResponderUpdateCommandSourceTest {
                 return uni.subscribeAsCompletionStage();
             }
         };
-        return new IncomingKafkaRecord<String, String>(kcr, kch, null);
+        return new IncomingKafkaRecord<String, byte[]>(kcr, kch, null);
     }
 
     private class MockKafkaConsumer<K, V> extends KafkaConsumerImpl<K, V> {
@@ -0,0 +1,107 @@
+package com.redhat.erdemo.responder.consumer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import com.redhat.erdemo.responder.model.Responder;
+import org.junit.jupiter.api.Test;
+
+public class UpdateResponderCommandParserTest {
+
+    @Test
+    void testParseUpdateResponderCommand() throws IOException {
+        String json = "{\"messageType\" : \"UpdateResponderCommand\"," +
+                "\"id\" : \"messageId\"," +
+                "\"invokingService\" : \"messageSender\"," +
+                "\"timestamp\" : 1521148332397," +
+                "\"header\" : {\"incidentId\" : \"incident\", \"attempt\" : 2, \"nested\" : {\"a\" : 1}}," +
+                "\"body\" : {" +
+                "\"responder\" : {" +
+                "\"id\" : \"1\"," +
+                "\"name\" : \"John Doe\"," +
+                "\"phoneNumber\" : \"111-222-333\"," +
+                "\"latitude\" : 30.12345," +
+                "\"longitude\" : -77.98765," +
+                "\"boatCapacity\" : 3," +
+                "\"medicalKit\" : true," +
+                "\"available\" : false," +
+                "\"enrolled\" : true," +
+                "\"person\" : false," +
+                "\"skills\" : [\"boat\", {\"level\" : 1}]" +
+                "}, \"other\" : {\"id\" : \"2\"}" +
+                "} " +
+                "}";
+
+        UpdateResponderCommand command = parse(json);
+
+        assertThat(command, notNullValue());
+        assertThat(command.getId(), equalTo("messageId"));
+        assertThat(command.getHeader().size(), equalTo(2));
+        assertThat(command.getHeader().get("incidentId"), equalTo("incident"));
+        assertThat(command.getHeader().get("attempt"), equalTo("2"));
+        Responder responder = command.getResponder();
+        assertThat(responder.getId(), equalTo("1"));
+        assertThat(responder.getName(), equalTo("John Doe"));
+        assertThat(responder.getPhoneNumber(), equalTo("111-222-333"));
+        assertThat(responder.getLatitude(), equalTo(new BigDecimal("30.12345")));
+        assertThat(responder.getLongitude(), equalTo(new BigDecimal("-77.98765")));
+        assertThat(responder.getBoatCapacity(), equalTo(3));
+        assertThat(responder.isMedicalKit(), equalTo(true));
+        assertThat(responder.isAvailable(), equalTo(false));
+        assertThat(responder.isEnrolled(), equalTo(true));
+        assertThat(responder.isPerson(), equalTo(false));
+    }
+
+    @Test
+    void testParseCommandWithOnlyAvailable() throws IOException {
+        String json = "{\"body\":{\"responder\":{\"id\":\"1\",\"available\":true}},\"messageType\":\"UpdateResponderCommand\"}";
+
+        UpdateResponderCommand command = parse(json);
+
+        assertThat(command, notNullValue());
+        assertThat(command.getHeader().isEmpty(), equalTo(true));
+        Responder responder = command.getResponder();
+        assertThat(responder.getId(), equalTo("1"));
+        assertThat(responder.isAvailable(), equalTo(true));
+        assertThat(responder.getName(), nullValue());
+        assertThat(responder.getLatitude(), nullValue());
+        assertThat(responder.getBoatCapacity(), nullValue());
+        assertThat(responder.isEnrolled(), nullValue());
+    }
+
+    @Test
+    void testParseOtherMessageTypeStopsAtMessageType() throws IOException {
+        // the rest of the payload is not read once the message type is known
+        UpdateResponderCommand command = parse("{\"messageType\":\"OtherCommand\",\"body\": this is not json");
+
+        assertThat(command, nullValue());
+    }
+
+    @Test
+    void testParseWithoutMessageType() throws IOException {
+        assertThat(parse("{\"body\":{\"responder\":{\"id\":\"1\"}}}"), nullValue());
+    }
+
+    @Test
+    void testParseWithoutResponder() throws IOException {
+        assertThat(parse("{\"messageType\":\"UpdateResponderCommand\",\"body\":{}}"), nullValue());
+        assertThat(parse("{\"messageType\":\"UpdateResponderCommand\",\"body\":{\"responder\":{\"available\":true}}}"), nullValue());
+    }
+
+    @Test
+    void testParseInvalidPayload() {
+        assertThrows(IOException.class, () -> parse("not json"));
+        assertThrows(IOException.class, () -> parse("[1, 2]"));
+    }
+
+    private static UpdateResponderCommand parse(String json) throws IOException {
+        return UpdateResponderCommandParser.parse(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,73 @@
+package com.redhat.erdemo.responder.message;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import com.redhat.erdemo.responder.model.Responder;
+import io.vertx.core.json.Json;
+import org.junit.jupiter.api.Test;
+
+public class BinaryEventCodecTest {
+
+    private final BinaryEventCodec codec = new BinaryEventCodec();
+
+    @Test
+    void testResponderUpdatedEventRoundTrip() {
+        Responder responder = new Responder.Builder("64").name("John \"Doe\" é € 🚑 " + "x".repeat(200))
+                .phoneNumber("(123) 456-7890").latitude(new BigDecimal("34.17010")).longitude(new BigDecimal("-7.7E+2"))
+                .boatCapacity(3).medicalKit(true).available(false).person(true).build();
+        Message<ResponderUpdatedEvent> message = new Message.Builder<>("ResponderUpdatedEvent", "ResponderService",
+                new ResponderUpdatedEvent.Builder("success", responder).statusMessage("").build())
+                .header("incidentId", "incident123").build();
+
+        byte[] payload = codec.encode(message);
+
+        assertThat(Arrays.copyOf(payload, 5), equalTo(new byte[]{0, 0, 0, 0, BinaryEventCodec.SCHEMA_ID}));
+        Message<?> decoded = BinaryEventDecoder.decode(payload);
+        // the same JSON as the original message
+        assertThat(Json.encode(decoded), equalTo(Json.encode(message)));
+        ResponderUpdatedEvent event = (ResponderUpdatedEvent) decoded.getBody();
+        assertThat(event.getStatusMessage(), equalTo(""));
+        assertThat(event.getResponder().isEnrolled(), nullValue());
+        assertThat(event.getResponder().getLatitude().scale(), equalTo(5));
+    }
+
+    @Test
+    void testRespondersCreatedAndDeletedEventsRoundTrip() {
+        Message<RespondersCreatedEvent> created = new Message.Builder<>("RespondersCreatedEvent", "ResponderService",
+                new RespondersCreatedEvent.Builder(new Long[]{1L, 300L, Long.MAX_VALUE}).build()).build();
+        Message<RespondersDeletedEvent> deleted = new Message.Builder<>("RespondersDeletedEvent", "ResponderService",
+                new RespondersDeletedEvent.Builder(new Long[0]).build()).header("chunkSequence", "1").build();
+
+        assertThat(Json.encode(BinaryEventDecoder.decode(codec.encode(created))), equalTo(Json.encode(created)));
+        assertThat(Json.encode(BinaryEventDecoder.decode(codec.encode(deleted))), equalTo(Json.encode(deleted)));
+    }
+
+    @Test
+    void testSmallerThanJson() {
+        Long[] ids = new Long[100];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1000L + i;
+        }
+        Message<RespondersCreatedEvent> message = new Message.Builder<>("RespondersCreatedEvent", "ResponderService",
+                new RespondersCreatedEvent.Builder(ids).build()).build();
+
+        assertThat(codec.encode(message).length * 2, lessThan(MessageSerializer.serialize(message).length));
+    }
+
+    @Test
+    void testInvalidInput() {
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(new Message.Builder<>("Other", "ResponderService", "body").build()));
+        assertThrows(IllegalArgumentException.class, () -> BinaryEventDecoder.decode("{\"id\":\"1\"}".getBytes()));
+        assertThrows(IllegalArgumentException.class, () -> BinaryEventDecoder.decode(new byte[]{0, 0, 0, 0, 2}));
+        byte[] payload = codec.encode(new Message.Builder<>("RespondersCreatedEvent", "ResponderService",
+                new RespondersCreatedEvent.Builder(new Long[]{1L}).build()).build());
+        assertThrows(IllegalArgumentException.class, () -> BinaryEventDecoder.decode(Arrays.copyOf(payload, payload.length - 2)));
+    }
+}
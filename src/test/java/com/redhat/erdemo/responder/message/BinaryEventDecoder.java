@@ -0,0 +1,252 @@
+package com.redhat.erdemo.responder.message;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.redhat.erdemo.responder.model.Responder;
+
+/**
+ * Reads the payloads written by {@link BinaryEventCodec}, to check its output in tests.
+ */
+public final class BinaryEventDecoder {
+
+    private static final byte MAGIC = 0;
+
+    private static final int VARINT = 0;
+
+    private static final int FIXED64 = 1;
+
+    private static final int LENGTH_DELIMITED = 2;
+
+    private static final int FIXED32 = 5;
+
+    private BinaryEventDecoder() {
+    }
+
+    /**
+     * Reads a payload written by {@link BinaryEventCodec#encode(Message)}, unknown fields are skipped.
+     *
+     * @throws IllegalArgumentException when the payload does not start with the magic byte and a known schema id,
+     * or is truncated.
+     */
+    public static Message<?> decode(byte[] payload) {
+        if (payload.length < 5 || payload[0] != MAGIC) {
+            throw new IllegalArgumentException("Payload is not a binary responder event");
+        }
+        int schemaId = (payload[1] & 0xFF) << 24 | (payload[2] & 0xFF) << 16 | (payload[3] & 0xFF) << 8 | (payload[4] & 0xFF);
+        if (schemaId != BinaryEventCodec.SCHEMA_ID) {
+            throw new IllegalArgumentException("Unknown schema id " + schemaId);
+        }
+        Reader reader = new Reader(payload, 5, payload.length);
+        String id = null;
+        String messageType = null;
+        String invokingService = null;
+        long timestamp = 0;
+        Map<String, String> header = new LinkedHashMap<>();
+        Object body = null;
+        while (reader.hasMore()) {
+            int tag = reader.tag();
+            switch (tag >>> 3) {
+                case 1: id = reader.string(); break;
+                case 2: messageType = reader.string(); break;
+                case 3: invokingService = reader.string(); break;
+                case 4: timestamp = reader.varint(); break;
+                case 5: readHeaderEntry(reader.message(), header); break;
+                case 6: body = readResponderUpdated(reader.message()); break;
+                case 7: body = new RespondersCreatedEvent.Builder(readIds(reader.message())).build(); break;
+                case 8: body = new RespondersDeletedEvent.Builder(readIds(reader.message())).build(); break;
+                default: reader.skip(tag);
+            }
+        }
+        Message.Builder<Object> builder = new Message.Builder<>(messageType, invokingService, body).timestamp(timestamp);
+        if (id != null) {
+            builder.id(id);
+        }
+        header.forEach(builder::header);
+        return builder.build();
+    }
+
+    private static void readHeaderEntry(Reader reader, Map<String, String> header) {
+        String key = null;
+        String value = null;
+        while (reader.hasMore()) {
+            int tag = reader.tag();
+            switch (tag >>> 3) {
+                case 1: key = reader.string(); break;
+                case 2: value = reader.string(); break;
+                default: reader.skip(tag);
+            }
+        }
+        header.put(key, value);
+    }
+
+    private static ResponderUpdatedEvent readResponderUpdated(Reader reader) {
+        String status = null;
+        String statusMessage = null;
+        Responder responder = null;
+        while (reader.hasMore()) {
+            int tag = reader.tag();
+            switch (tag >>> 3) {
+                case 1: status = reader.string(); break;
+                case 2: statusMessage = reader.string(); break;
+                case 3: responder = readResponder(reader.message()); break;
+                default: reader.skip(tag);
+            }
+        }
+        return new ResponderUpdatedEvent.Builder(status, responder).statusMessage(statusMessage).build();
+    }
+
+    private static Responder readResponder(Reader reader) {
+        String id = null;
+        String name = null;
+        String phoneNumber = null;
+        BigDecimal latitude = null;
+        BigDecimal longitude = null;
+        Integer boatCapacity = null;
+        Boolean medicalKit = null;
+        Boolean available = null;
+        Boolean person = null;
+        Boolean enrolled = null;
+        while (reader.hasMore()) {
+            int tag = reader.tag();
+            switch (tag >>> 3) {
+                case 1: id = reader.string(); break;
+                case 2: name = reader.string(); break;
+                case 3: phoneNumber = reader.string(); break;
+                case 4: latitude = readDecimal(reader.message()); break;
+                case 5: longitude = readDecimal(reader.message()); break;
+                case 6: boatCapacity = (int) reader.varint(); break;
+                case 7: medicalKit = reader.varint() != 0; break;
+                case 8: available = reader.varint() != 0; break;
+                case 9: person = reader.varint() != 0; break;
+                case 10: enrolled = reader.varint() != 0; break;
+                default: reader.skip(tag);
+            }
+        }
+        return new Responder.Builder(id).name(name).phoneNumber(phoneNumber).latitude(latitude).longitude(longitude)
+                .boatCapacity(boatCapacity).medicalKit(medicalKit).available(available).person(person).enrolled(enrolled)
+                .build();
+    }
+
+    private static BigDecimal readDecimal(Reader reader) {
+        long unscaled = 0;
+        int scale = 0;
+        while (reader.hasMore()) {
+            int tag = reader.tag();
+            switch (tag >>> 3) {
+                case 1: unscaled = reader.sint64(); break;
+                case 2: scale = (int) reader.sint64(); break;
+                default: reader.skip(tag);
+            }
+        }
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private static Long[] readIds(Reader reader) {
+        List<Long> ids = new ArrayList<>();
+        while (reader.hasMore()) {
+            int tag = reader.tag();
+            if (tag >>> 3 != 1) {
+                reader.skip(tag);
+            } else if ((tag & 7) == LENGTH_DELIMITED) {
+                Reader packed = reader.message();
+                while (packed.hasMore()) {
+                    ids.add(packed.varint());
+                }
+            } else {
+                ids.add(reader.varint());
+            }
+        }
+        return ids.toArray(new Long[0]);
+    }
+
+    private static final class Reader {
+
+        private final byte[] buffer;
+
+        private int position;
+
+        private final int limit;
+
+        Reader(byte[] buffer, int position, int limit) {
+            this.buffer = buffer;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        boolean hasMore() {
+            return position < limit;
+        }
+
+        int tag() {
+            return (int) varint();
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = next();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        long sint64() {
+            long value = varint();
+            return value >>> 1 ^ -(value & 1);
+        }
+
+        String string() {
+            int length = length();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        Reader message() {
+            int length = length();
+            Reader reader = new Reader(buffer, position, position + length);
+            position += length;
+            return reader;
+        }
+
+        void skip(int tag) {
+            switch (tag & 7) {
+                case VARINT: varint(); break;
+                case FIXED64: advance(8); break;
+                case LENGTH_DELIMITED: advance(length()); break;
+                case FIXED32: advance(4); break;
+                default: throw new IllegalArgumentException("Unsupported wire type " + (tag & 7));
+            }
+        }
+
+        private int length() {
+            long length = varint();
+            if (length < 0 || length > limit - position) {
+                throw new IllegalArgumentException("Truncated payload");
+            }
+            return (int) length;
+        }
+
+        private void advance(int bytes) {
+            if (bytes > limit - position) {
+                throw new IllegalArgumentException("Truncated payload");
+            }
+            position += bytes;
+        }
+
+        private byte next() {
+            if (position >= limit) {
+                throw new IllegalArgumentException("Truncated payload");
+            }
+            return buffer[position++];
+        }
+    }
+}
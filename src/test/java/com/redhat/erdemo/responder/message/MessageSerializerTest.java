@@ -0,0 +1,54 @@
+package com.redhat.erdemo.responder.message;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import com.redhat.erdemo.responder.model.Responder;
+import io.vertx.core.json.Json;
+import org.junit.jupiter.api.Test;
+
+public class MessageSerializerTest {
+
+    @Test
+    void testResponderUpdatedEventMatchesDatabind() {
+        Responder responder = new Responder.Builder("1").name("John \"Doe\"\n\t\u0001 é €").phoneNumber("(123) 456-7890")
+                .latitude(new BigDecimal("30.12340")).longitude(new BigDecimal("-7.7E+2")).boatCapacity(3)
+                .medicalKit(true).available(false).person(true).build();
+        Message<ResponderUpdatedEvent> message = new Message.Builder<>("ResponderUpdatedEvent", "ResponderService",
+                new ResponderUpdatedEvent.Builder("success", responder).statusMessage("Responder updated").build())
+                .header("incidentId", "incident\\123").header("missionId", "mission").build();
+
+        assertSameJson(message);
+    }
+
+    @Test
+    void testResponderUpdatedEventWithNullsMatchesDatabind() {
+        Message<ResponderUpdatedEvent> message = new Message.Builder<>("ResponderUpdatedEvent", "ResponderService",
+                new ResponderUpdatedEvent.Builder("error", new Responder.Builder("2").build()).build()).build();
+
+        assertSameJson(message);
+    }
+
+    @Test
+    void testRespondersCreatedAndDeletedEventsMatchDatabind() {
+        assertSameJson(new Message.Builder<>("RespondersCreatedEvent", "ResponderService",
+                new RespondersCreatedEvent.Builder(new Long[]{1L, null, Long.MAX_VALUE}).build()).build());
+        assertSameJson(new Message.Builder<>("RespondersDeletedEvent", "ResponderService",
+                new RespondersDeletedEvent.Builder(new Long[0]).build()).build());
+    }
+
+    @Test
+    void testUnknownBody() {
+        assertThrows(IllegalArgumentException.class, () -> MessageSerializer.serialize(new Message.Builder<>("Other", "ResponderService", "body").build()));
+    }
+
+    private void assertSameJson(Message<?> message) {
+        // twice, the second time with the reused buffer
+        assertThat(new String(MessageSerializer.serialize(message), StandardCharsets.UTF_8), equalTo(Json.encode(message)));
+        assertThat(MessageSerializer.serialize(message), equalTo(Json.encode(message).getBytes(StandardCharsets.UTF_8)));
+    }
+}
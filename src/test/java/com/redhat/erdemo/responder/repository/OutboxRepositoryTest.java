@@ -0,0 +1,111 @@
+package com.redhat.erdemo.responder.repository;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import javax.transaction.TransactionalException;
+import javax.transaction.UserTransaction;
+
+import com.redhat.erdemo.responder.repository.ResponderRepositoryTest.TransactionTemplate;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class OutboxRepositoryTest {
+
+    @Inject
+    OutboxRepository repository;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction transaction;
+
+    @BeforeEach
+    @Transactional
+    void deleteAllFromTable() {
+        entityManager.createQuery("DELETE FROM OutboxEventEntity").executeUpdate();
+    }
+
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      Three events are added to the outbox
+     *      A call is made to `nextBatch` with a limit of 2, the returned events are deleted
+     *      A call is made to `nextBatch` again
+     *
+     *    Then:
+     *      The events are returned in insertion order
+     *
+     */
+    @Test
+    void testAddAndNextBatch() {
+
+        TransactionTemplate template = new TransactionTemplate(transaction);
+        template.execute(() -> {
+            repository.add("1", "event1");
+            repository.add("2", "event2");
+            repository.add("1", "event3");
+            return null;
+        });
+
+        List<String> batch = template.execute(() -> {
+            List<OutboxEventEntity> events = repository.nextBatch(2);
+            repository.delete(events.stream().map(OutboxEventEntity::getId).collect(Collectors.toList()));
+            return events.stream().map(OutboxEventEntity::getPayload).collect(Collectors.toList());
+        });
+        assertThat(batch, equalTo(Arrays.asList("event1", "event2")));
+
+        batch = template.execute(() -> repository.nextBatch(2).stream().map(OutboxEventEntity::getPayload).collect(Collectors.toList()));
+        assertThat(batch, equalTo(Arrays.asList("event3")));
+        assertThat(template.execute(() -> repository.count()), equalTo(1L));
+    }
+
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      An event is added to the outbox in a transaction which is rolled back
+     *
+     *    Then:
+     *      The outbox is empty
+     *
+     */
+    @Test
+    void testAddRolledBack() {
+
+        TransactionTemplate template = new TransactionTemplate(transaction);
+        template.execute(() -> {
+            repository.add("1", "event1");
+            throw new IllegalStateException();
+        });
+
+        assertThat(template.execute(() -> repository.count()), equalTo(0L));
+    }
+
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      An event is added to the outbox outside of a transaction
+     *
+     *    Then:
+     *      An exception is thrown
+     *
+     */
+    @Test
+    void testAddWithoutTransaction() {
+
+        assertThrows(TransactionalException.class, () -> repository.add("1", "event1"));
+    }
+}
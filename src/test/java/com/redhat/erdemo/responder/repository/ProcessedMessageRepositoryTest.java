@@ -0,0 +1,99 @@
+package com.redhat.erdemo.responder.repository;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import javax.transaction.UserTransaction;
+
+import com.redhat.erdemo.responder.repository.ResponderRepositoryTest.TransactionTemplate;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class ProcessedMessageRepositoryTest {
+
+    @Inject
+    ProcessedMessageRepository repository;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction transaction;
+
+    @BeforeEach
+    @Transactional
+    void deleteAllFromTable() {
+        entityManager.createQuery("DELETE FROM ProcessedMessageEntity").executeUpdate();
+    }
+
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      Three messages are saved, one of them twice
+     *      A call is made to `processedSince`
+     *
+     *    Then:
+     *      The messages processed since the given time are returned, newest first
+     *      A message saved twice has the time of the last save
+     *
+     */
+    @Test
+    void testSaveAndProcessedSince() {
+
+        TransactionTemplate template = new TransactionTemplate(transaction);
+        template.execute(() -> {
+            repository.save("message1", 1000L);
+            repository.save("message2", 2000L);
+            repository.save("message3", 3000L);
+            return null;
+        });
+        template.execute(() -> {
+            repository.save("message1", 4000L);
+            return null;
+        });
+
+        List<ProcessedMessageEntity> messages = template.execute(() -> repository.processedSince(2000L, 10));
+        assertThat(messages.stream().map(ProcessedMessageEntity::getMessageId).collect(Collectors.toList()),
+                equalTo(Arrays.asList("message1", "message3", "message2")));
+
+        messages = template.execute(() -> repository.processedSince(2000L, 2));
+        assertThat(messages.size(), equalTo(2));
+    }
+
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      Two messages are saved
+     *      A call is made to `deleteBefore` with a time between the two
+     *
+     *    Then:
+     *      Only the older message is deleted
+     *
+     */
+    @Test
+    void testDeleteBefore() {
+
+        TransactionTemplate template = new TransactionTemplate(transaction);
+        template.execute(() -> {
+            repository.save("message1", 1000L);
+            repository.save("message2", 2000L);
+            return null;
+        });
+
+        Integer deleted = template.execute(() -> repository.deleteBefore(1500L));
+        assertThat(deleted, equalTo(1));
+        List<ProcessedMessageEntity> messages = template.execute(() -> repository.processedSince(0L, 10));
+        assertThat(messages.size(), equalTo(1));
+        assertThat(messages.get(0).getMessageId(), equalTo("message2"));
+    }
+}
@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
@@ -940,6 +941,165 @@ public class ResponderRepositoryTest {
         assertThat(verify.isAvailable(), equalTo(true));
     }
 
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      There is a ResponderEntity record in the database
+     *      The ResponderEntity has the field `available` set to false.
+     *      A call is made to `updateLocation`
+     *
+     *    Then:
+     *      The call returns true
+     *      The ResponderEntity record in the database has the new location
+     *      The version of the ResponderEntity record is incremented
+     *
+     */
+    @Test
+    void testUpdateLocation() {
+
+        ResponderEntity responder = new ResponderEntity.Builder()
+                .name("John Foo")
+                .phoneNumber("999-888-777")
+                .currentPositionLatitude(new BigDecimal("35.12345"))
+                .currentPositionLongitude(new BigDecimal("-75.98765"))
+                .available(false)
+                .enrolled(true)
+                .person(false)
+                .build();
+
+        createResponders(Collections.singletonList(responder));
+        long version = responder.getVersion();
+
+        TransactionTemplate template = new TransactionTemplate(transaction);
+        Boolean updated = template.execute(() -> responderRepository.updateLocation(responder.getId(),
+                new BigDecimal("35.23456"), new BigDecimal("-75.87654")));
+        assertThat(updated, equalTo(true));
+        ResponderEntity verify = template.execute(() -> responderRepository.findById(responder.getId()));
+        assertThat(verify, notNullValue());
+        assertThat(verify.getCurrentPositionLatitude(), equalTo(new BigDecimal("35.23456")));
+        assertThat(verify.getCurrentPositionLongitude(), equalTo(new BigDecimal("-75.87654")));
+        assertThat(verify.getVersion(), equalTo(version + 1));
+    }
+
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      There is a ResponderEntity record in the database
+     *      The ResponderEntity has the field `available` set to true.
+     *      A call is made to `updateLocation`
+     *
+     *    Then:
+     *      The call returns false
+     *      The ResponderEntity record in the database is not updated
+     *
+     */
+    @Test
+    void testUpdateLocationWhenAvailable() {
+
+        ResponderEntity responder = new ResponderEntity.Builder()
+                .name("John Foo")
+                .phoneNumber("999-888-777")
+                .currentPositionLatitude(new BigDecimal("35.12345"))
+                .currentPositionLongitude(new BigDecimal("-75.98765"))
+                .available(true)
+                .enrolled(true)
+                .person(false)
+                .build();
+
+        createResponders(Collections.singletonList(responder));
+
+        TransactionTemplate template = new TransactionTemplate(transaction);
+        Boolean updated = template.execute(() -> responderRepository.updateLocation(responder.getId(),
+                new BigDecimal("35.23456"), new BigDecimal("-75.87654")));
+        assertThat(updated, equalTo(false));
+        ResponderEntity verify = template.execute(() -> responderRepository.findById(responder.getId()));
+        assertThat(verify, notNullValue());
+        assertThat(verify.getCurrentPositionLatitude(), equalTo(new BigDecimal("35.12345")));
+        assertThat(verify.getCurrentPositionLongitude(), equalTo(new BigDecimal("-75.98765")));
+    }
+
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      A call is made to `updateLocation` for an id not present in the database records
+     *
+     *    Then:
+     *      The call returns false
+     *
+     */
+    @Test
+    void testUpdateLocationWhenNotFound() {
+
+        TransactionTemplate template = new TransactionTemplate(transaction);
+        Boolean updated = template.execute(() -> responderRepository.updateLocation(1000L,
+                new BigDecimal("35.23456"), new BigDecimal("-75.87654")));
+        assertThat(updated, equalTo(false));
+    }
+
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      There are two ResponderEntity records in the database
+     *      A call is made to `updateAll` with a changed state for the first record, an unchanged state for the
+     *      second record and a record which does not exist
+     *
+     *    Then:
+     *      The results are returned in the order of the call
+     *      Only the first ResponderEntity record in the database is updated
+     *
+     */
+    @Test
+    void testUpdateAll() {
+
+        ResponderEntity responder1 = new ResponderEntity.Builder()
+                .name("John Foo")
+                .phoneNumber("999-888-777")
+                .currentPositionLatitude(new BigDecimal("35.12345"))
+                .currentPositionLongitude(new BigDecimal("-75.98765"))
+                .available(true)
+                .enrolled(true)
+                .person(false)
+                .build();
+
+        ResponderEntity responder2 = new ResponderEntity.Builder()
+                .name("John Doe")
+                .phoneNumber("111-222-333")
+                .currentPositionLatitude(new BigDecimal("30.12345"))
+                .currentPositionLongitude(new BigDecimal("-70.98765"))
+                .available(true)
+                .enrolled(true)
+                .person(false)
+                .build();
+
+        createResponders(Arrays.asList(responder1, responder2));
+
+        TransactionTemplate template = new TransactionTemplate(transaction);
+        List<Triple<Boolean, String, ResponderEntity>> results = template.execute(() -> responderRepository.updateAll(Arrays.asList(
+                new ResponderEntity.Builder(responder1.getId()).available(false).build(),
+                new ResponderEntity.Builder(responder2.getId()).available(true).build(),
+                new ResponderEntity.Builder(1000L).available(false).build())));
+
+        assertThat(results.size(), equalTo(3));
+        assertThat(results.get(0).getLeft(), equalTo(true));
+        assertThat(results.get(0).getRight().getId(), equalTo(responder1.getId()));
+        assertThat(results.get(0).getRight().getName(), equalTo("John Foo"));
+        assertThat(results.get(0).getRight().isAvailable(), equalTo(false));
+        assertThat(results.get(1).getLeft(), equalTo(false));
+        assertThat(results.get(1).getMiddle(), equalTo("Responder state not changed"));
+        assertThat(results.get(2).getLeft(), equalTo(false));
+        assertThat(results.get(2).getRight(), nullValue());
+
+        ResponderEntity verify1 = template.execute(() -> responderRepository.findById(responder1.getId()));
+        assertThat(verify1.isAvailable(), equalTo(false));
+        assertThat(verify1.getVersion(), equalTo(responder1.getVersion() + 1));
+        ResponderEntity verify2 = template.execute(() -> responderRepository.findById(responder2.getId()));
+        assertThat(verify2.getVersion(), equalTo(responder2.getVersion()));
+    }
+
     /**
      *  Test description:
      *
@@ -959,6 +1119,7 @@ public class ResponderRepositoryTest {
 
         CountDownLatch latch = new CountDownLatch(1);
         CountDownLatch thread2Latch = new CountDownLatch(1);
+        CountDownLatch thread1Latch = new CountDownLatch(1);
 
         ResponderEntity responder = new ResponderEntity.Builder()
                 .name("John Foo")
@@ -980,6 +1141,7 @@ public class ResponderRepositoryTest {
             template.execute(() -> {
                 try {
                     ResponderEntity toUpdate = responderRepository.findById(responder.getId());
+                    thread1Latch.countDown();
                     thread2Latch.await(10, TimeUnit.SECONDS);
 
                     toUpdate.update(updated);
@@ -997,6 +1159,10 @@ public class ResponderRepositoryTest {
         };
 
         Runnable thread2 = () -> {
+            try {
+                thread1Latch.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+            }
             TransactionTemplate template = new TransactionTemplate(transaction);
             ResponderEntity updated = new ResponderEntity.Builder(responder.getId()).currentPositionLatitude(new BigDecimal("30.12345")).available(false).build();
             template.execute(() -> {
@@ -1623,6 +1789,50 @@ public class ResponderRepositoryTest {
         assertThat(count, equalTo(3L));
     }
 
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      There are ResponderEntity records in the database
+     *      A call is made to `availabilityById`
+     *
+     *    Then:
+     *      The call returns the `available` field of every ResponderEntity record, keyed by id
+     *      A ResponderEntity record with `available` not set is reported as not available
+     *
+     */
+    @Test
+    void testAvailabilityById() {
+        ResponderEntity responder1 = new ResponderEntity.Builder()
+                .name("John Foo I")
+                .available(true)
+                .enrolled(true)
+                .person(true)
+                .build();
+
+        ResponderEntity responder2 = new ResponderEntity.Builder()
+                .name("John Foo II")
+                .available(false)
+                .enrolled(true)
+                .person(false)
+                .build();
+
+        ResponderEntity responder3 = new ResponderEntity.Builder()
+                .name("John Foo III")
+                .enrolled(false)
+                .person(false)
+                .build();
+
+        createResponders(Arrays.asList(responder1, responder2, responder3));
+
+        TransactionTemplate template = new TransactionTemplate(transaction);
+        Map<Long, Boolean> availability = template.execute(() -> responderRepository.availabilityById());
+        assertThat(availability.size(), equalTo(3));
+        assertThat(availability.get(responder1.getId()), equalTo(true));
+        assertThat(availability.get(responder2.getId()), equalTo(false));
+        assertThat(availability.get(responder3.getId()), equalTo(false));
+    }
+
     @Transactional
     void createResponders(List<ResponderEntity> responders) {
         responders.forEach(r -> entityManager.persist(r));
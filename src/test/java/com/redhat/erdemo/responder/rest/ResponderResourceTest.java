@@ -7,6 +7,7 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
@@ -20,7 +21,9 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.redhat.erdemo.responder.model.Responder;
 import com.redhat.erdemo.responder.model.ResponderStats;
+import com.redhat.erdemo.responder.model.TrackPoint;
 import com.redhat.erdemo.responder.service.ResponderService;
+import com.redhat.erdemo.responder.service.ResponderTrackStore;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
 import io.restassured.http.ContentType;
@@ -36,6 +39,9 @@ public class ResponderResourceTest {
     @InjectMock
     ResponderService responderService;
 
+    @InjectMock
+    ResponderTrackStore trackStore;
+
     @Captor
     private ArgumentCaptor<Responder> responderCaptor;
 
@@ -89,6 +95,41 @@ public class ResponderResourceTest {
         verify(responderService).getResponder(1L);
     }
 
+    @Test
+    void testResponderTrackEndpoint() throws JsonProcessingException {
+
+        List<TrackPoint> track = Arrays.asList(new TrackPoint(new BigDecimal("30.12345"), new BigDecimal("-70.98765"), 1600000000000L),
+                new TrackPoint(new BigDecimal("30.12355"), new BigDecimal("-70.98755"), 1600000005000L));
+
+        when(trackStore.isEnabled()).thenReturn(true);
+        when(trackStore.track(any(Long.class))).thenReturn(track);
+
+        String body = given().when().get("/responder/1/track")
+                .then().assertThat().statusCode(200).contentType(ContentType.JSON).extract().asString();
+
+        String json =  new ObjectMapper().writeValueAsString(track);
+        assertThat(body, jsonEquals(json));
+        verify(trackStore).track(1L);
+    }
+
+    @Test
+    void testResponderTrackEndpointWhenNotTracked() {
+
+        when(trackStore.isEnabled()).thenReturn(true);
+        when(trackStore.track(any(Long.class))).thenReturn(null);
+
+        given().when().get("/responder/1/track").then().assertThat().statusCode(404);
+    }
+
+    @Test
+    void testResponderTrackEndpointWhenDisabled() {
+
+        when(trackStore.isEnabled()).thenReturn(false);
+
+        given().when().get("/responder/1/track").then().assertThat().statusCode(404);
+        verify(trackStore, never()).track(any(Long.class));
+    }
+
     @Test
     void testResponderByNameEndpoint() throws JsonProcessingException {
 
@@ -256,6 +297,61 @@ public class ResponderResourceTest {
         verify(responderService).availableResponders(10, 5);
     }
 
+    @Test
+    void testNearestAvailableRespondersEndpoint() throws JsonProcessingException {
+
+        Responder responder1 = new Responder.Builder("1")
+                .name("John Doe")
+                .latitude(new BigDecimal("30.12345"))
+                .longitude(new BigDecimal("-70.98765"))
+                .available(true)
+                .enrolled(true)
+                .build();
+
+        Responder responder2 = new Responder.Builder("2")
+                .name("John Foo")
+                .latitude(new BigDecimal("30.22345"))
+                .longitude(new BigDecimal("-70.98765"))
+                .available(true)
+                .enrolled(true)
+                .build();
+
+        List<Responder> responders = Arrays.asList(responder1, responder2);
+        when(responderService.nearestAvailableResponders(any(Double.class), any(Double.class), any(Integer.class))).thenReturn(responders);
+
+        String body = given().when().get("/responders/available/nearest?lat=30.12&lon=-70.98&k=2")
+                .then().assertThat().statusCode(200).contentType(ContentType.JSON).extract().asString();
+
+        String json =  new ObjectMapper().writeValueAsString(responders);
+        assertThat(body, jsonEquals(json));
+        verify(responderService).nearestAvailableResponders(30.12, -70.98, 2);
+    }
+
+    @Test
+    void testNearestAvailableRespondersEndpointWithoutLocation() {
+
+        given().when().get("/responders/available/nearest?lat=30.12")
+                .then().assertThat().statusCode(400);
+    }
+
+    @Test
+    void testNearestAvailableRespondersEndpointWithInvalidParameters() {
+
+        given().when().get("/responders/available/nearest?lat=91&lon=-70.98")
+                .then().assertThat().statusCode(400);
+        given().when().get("/responders/available/nearest?lat=30.12&lon=-181")
+                .then().assertThat().statusCode(400);
+        given().when().get("/responders/available/nearest?lat=NaN&lon=NaN")
+                .then().assertThat().statusCode(400);
+        given().when().get("/responders/available/nearest?lat=30.12&lon=Infinity")
+                .then().assertThat().statusCode(400);
+        given().when().get("/responders/available/nearest?lat=30.12&lon=-70.98&k=0")
+                .then().assertThat().statusCode(400);
+        given().when().get("/responders/available/nearest?lat=30.12&lon=-70.98&k=2147483647")
+                .then().assertThat().statusCode(400);
+        verify(responderService, never()).nearestAvailableResponders(any(Double.class), any(Double.class), any(Integer.class));
+    }
+
     @Test
     void testAllRespondersEndpoint() throws JsonProcessingException {
 
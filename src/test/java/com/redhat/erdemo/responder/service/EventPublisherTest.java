@@ -5,23 +5,35 @@ import static net.javacrumbs.jsonunit.JsonMatchers.jsonPartEquals;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javax.enterprise.inject.Any;
 import javax.inject.Inject;
+import javax.transaction.UserTransaction;
 
 import com.redhat.erdemo.responder.model.Responder;
+import com.redhat.erdemo.responder.repository.OutboxRepository;
 import io.quarkus.test.junit.QuarkusTest;
 import io.smallrye.reactive.messaging.connectors.InMemoryConnector;
 import io.smallrye.reactive.messaging.connectors.InMemorySink;
 import io.smallrye.reactive.messaging.kafka.OutgoingKafkaRecord;
+import io.vertx.core.json.JsonObject;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
 import org.eclipse.microprofile.reactive.messaging.Message;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 
 @QuarkusTest
 public class EventPublisherTest {
@@ -32,6 +44,9 @@ public class EventPublisherTest {
     @Inject @Any
     InMemoryConnector connector;
 
+    @Inject
+    UserTransaction transaction;
+
     @BeforeEach
     void init() {
         connector.sink("responder-event").clear();
@@ -40,16 +55,18 @@ public class EventPublisherTest {
     @Test
     void testResponderCreated() {
 
-        InMemorySink<String> results = connector.sink("responder-event");
+        InMemorySink<byte[]> results = connector.sink("responder-event");
 
         eventPublisher.responderCreated(1L);
 
         assertThat(results.received().size(), equalTo(1));
-        Message<String> message = results.received().get(0);
+        Message<byte[]> message = results.received().get(0);
         assertThat(message, instanceOf(OutgoingKafkaRecord.class));
-        String value = message.getPayload();
-        String key = ((OutgoingKafkaRecord<String, String>)message).getKey();
+        String value = new String(message.getPayload(), StandardCharsets.UTF_8);
+        String key = ((OutgoingKafkaRecord<String, byte[]>)message).getKey();
         assertThat(key, equalTo("1"));
+        assertThat(new String(((OutgoingKafkaRecord<String, byte[]>) message).getHeaders().lastHeader("content-type").value(),
+                StandardCharsets.UTF_8), equalTo("application/json"));
         assertThat(value, jsonNodePresent("id"));
         assertThat(value, jsonPartEquals("messageType", "RespondersCreatedEvent"));
         assertThat(value, jsonPartEquals("invokingService", "ResponderService"));
@@ -62,15 +79,15 @@ public class EventPublisherTest {
     @Test
     void testRespondersCreated() {
 
-        InMemorySink<String> results = connector.sink("responder-event");
+        InMemorySink<byte[]> results = connector.sink("responder-event");
 
         eventPublisher.respondersCreated(Arrays.asList(1L, 2L, 3L));
 
         assertThat(results.received().size(), equalTo(1));
-        Message<String> message = results.received().get(0);
+        Message<byte[]> message = results.received().get(0);
         assertThat(message, instanceOf(OutgoingKafkaRecord.class));
-        String value = message.getPayload();
-        String key = ((OutgoingKafkaRecord<String, String>)message).getKey();
+        String value = new String(message.getPayload(), StandardCharsets.UTF_8);
+        String key = ((OutgoingKafkaRecord<String, byte[]>)message).getKey();
         assertThat(key, equalTo("30817"));
         assertThat(value, jsonNodePresent("id"));
         assertThat(value, jsonPartEquals("messageType", "RespondersCreatedEvent"));
@@ -86,15 +103,15 @@ public class EventPublisherTest {
     @Test
     void testRespondersDeleted() {
 
-        InMemorySink<String> results = connector.sink("responder-event");
+        InMemorySink<byte[]> results = connector.sink("responder-event");
 
         eventPublisher.respondersDeleted(Arrays.asList(1L, 2L, 3L));
 
         assertThat(results.received().size(), equalTo(1));
-        Message<String> message = results.received().get(0);
+        Message<byte[]> message = results.received().get(0);
         assertThat(message, instanceOf(OutgoingKafkaRecord.class));
-        String value = message.getPayload();
-        String key = ((OutgoingKafkaRecord<String, String>)message).getKey();
+        String value = new String(message.getPayload(), StandardCharsets.UTF_8);
+        String key = ((OutgoingKafkaRecord<String, byte[]>)message).getKey();
         assertThat(key, equalTo("30817"));
         assertThat(value, jsonNodePresent("id"));
         assertThat(value, jsonPartEquals("messageType", "RespondersDeletedEvent"));
@@ -110,7 +127,7 @@ public class EventPublisherTest {
     @Test
     void testResponderUpdated() {
 
-        InMemorySink<String> results = connector.sink("responder-event");
+        InMemorySink<byte[]> results = connector.sink("responder-event");
 
         Responder responder1 = new Responder.Builder("1")
                 .name("John Doe")
@@ -129,11 +146,11 @@ public class EventPublisherTest {
 
         eventPublisher.responderUpdated(ImmutableTriple.of(true, "message", responder1), context);
 
-        Message<String> message = results.received().get(0);
+        Message<byte[]> message = results.received().get(0);
         assertThat(results.received().size(), equalTo(1));
         assertThat(message, instanceOf(OutgoingKafkaRecord.class));
-        String value = message.getPayload();
-        String key = ((OutgoingKafkaRecord<String, String>)message).getKey();
+        String value = new String(message.getPayload(), StandardCharsets.UTF_8);
+        String key = ((OutgoingKafkaRecord<String, byte[]>)message).getKey();
         assertThat(key, equalTo("1"));
         assertThat(value, jsonNodePresent("id"));
         assertThat(value, jsonPartEquals("messageType", "ResponderUpdatedEvent"));
@@ -157,4 +174,104 @@ public class EventPublisherTest {
         assertThat(value, jsonPartEquals("body.responder.person", false));
     }
 
+
+    @Test
+    void testRespondersDeletedToOutbox() {
+
+        InMemorySink<byte[]> results = connector.sink("responder-event");
+        EventPublisher publisher = new EventPublisher();
+        publisher.outboxEnabled = true;
+        publisher.chunkSize = 1000;
+        publisher.outbox = Mockito.mock(OutboxRepository.class);
+
+        publisher.respondersDeleted(Arrays.asList(1L, 2L, 3L));
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(publisher.outbox).add(eq("30817"), payload.capture());
+        assertThat(payload.getValue(), jsonPartEquals("messageType", "RespondersDeletedEvent"));
+        assertThat(payload.getValue(), jsonPartEquals("body.deleted", 3));
+        assertThat(results.received().size(), equalTo(0));
+    }
+
+    @Test
+    void testInvalidChunkSize() {
+
+        EventPublisher publisher = new EventPublisher();
+        publisher.chunkSize = 0;
+
+        assertThrows(IllegalArgumentException.class, publisher::init);
+    }
+
+    @Test
+    void testRespondersCreatedInChunks() {
+
+        EventPublisher publisher = new EventPublisher();
+        publisher.outboxEnabled = true;
+        publisher.chunkSize = 2;
+        publisher.outbox = Mockito.mock(OutboxRepository.class);
+
+        EventPublisher.Chunked created = publisher.respondersCreated(5);
+        for (long id = 1; id <= 4; id++) {
+            created.add(id);
+        }
+        // the full chunks are sent while ids are added
+        verify(publisher.outbox, times(2)).add(eq("994"), any(String.class));
+        created.add(5L);
+        created.complete();
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(publisher.outbox, times(3)).add(eq("994"), payload.capture());
+        List<String> chunks = payload.getAllValues();
+        assertThat(chunks.get(0), jsonPartEquals("body.responders", "[1,2]"));
+        assertThat(chunks.get(2), jsonPartEquals("body.created", 1));
+        assertThat(chunks.get(2), jsonPartEquals("body.responders", "[5]"));
+        String group = new JsonObject(chunks.get(0)).getJsonObject("header").getString("chunkGroup");
+        for (int i = 0; i < chunks.size(); i++) {
+            JsonObject header = new JsonObject(chunks.get(i)).getJsonObject("header");
+            assertThat(header.getString("chunkGroup"), equalTo(group));
+            assertThat(header.getString("chunkSequence"), equalTo(Integer.toString(i + 1)));
+            assertThat(header.getString("chunkTotal"), equalTo("3"));
+        }
+    }
+
+    @Test
+    void testEventsSentAfterCommit() throws Exception {
+
+        InMemorySink<byte[]> results = connector.sink("responder-event");
+
+        transaction.begin();
+        eventPublisher.responderCreated(1L);
+        eventPublisher.responderCreated(2L);
+        assertThat(results.received().size(), equalTo(0));
+        transaction.commit();
+
+        assertThat(results.received().size(), equalTo(2));
+        assertThat(((OutgoingKafkaRecord<String, byte[]>) results.received().get(0)).getKey(), equalTo("1"));
+        assertThat(((OutgoingKafkaRecord<String, byte[]>) results.received().get(1)).getKey(), equalTo("2"));
+    }
+
+    @Test
+    void testEventsDiscardedOnRollback() throws Exception {
+
+        InMemorySink<byte[]> results = connector.sink("responder-event");
+
+        transaction.begin();
+        eventPublisher.respondersCreated(Arrays.asList(1L, 2L));
+        transaction.rollback();
+
+        assertThat(results.received().size(), equalTo(0));
+    }
+
+    @Test
+    void testEventsDiscardedWhenMarkedForRollback() throws Exception {
+
+        InMemorySink<byte[]> results = connector.sink("responder-event");
+
+        transaction.begin();
+        transaction.setRollbackOnly();
+        eventPublisher.responderCreated(1L);
+        transaction.rollback();
+
+        assertThat(results.received().size(), equalTo(0));
+    }
 }
@@ -0,0 +1,167 @@
+package com.redhat.erdemo.responder.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+public class EventQueueTest {
+
+    private Timer waits;
+
+    private Counter dropped;
+
+    @BeforeEach
+    void init() {
+        waits = mock(Timer.class);
+        dropped = mock(Counter.class);
+    }
+
+    @Test
+    void testEmitsAsRequested() {
+        EventQueue<String> queue = new EventQueue<>(10, EventQueue.Overflow.BLOCK, 1000, waits, dropped, item -> {});
+        queue.offer("a");
+        queue.offer("b");
+        queue.offer("c");
+        TestSubscriber subscriber = new TestSubscriber();
+        queue.subscribe(subscriber);
+
+        subscriber.subscription.request(2);
+        assertThat(subscriber.items, equalTo(Arrays.asList("a", "b")));
+        assertThat(queue.size(), equalTo(1));
+
+        subscriber.subscription.request(1);
+        assertThat(subscriber.items, equalTo(Arrays.asList("a", "b", "c")));
+        assertThat(queue.size(), equalTo(0));
+    }
+
+    @Test
+    void testOverflowFail() {
+        EventQueue<String> queue = new EventQueue<>(2, EventQueue.Overflow.FAIL, 1000, waits, dropped, item -> {});
+        queue.offer("a");
+        queue.offer("b");
+
+        assertThrows(IllegalStateException.class, () -> queue.offer("c"));
+        verify(dropped).inc();
+        assertThat(queue.size(), equalTo(2));
+    }
+
+    @Test
+    void testOverflowDropOldest() {
+        List<String> droppedItems = new ArrayList<>();
+        EventQueue<String> queue = new EventQueue<>(2, EventQueue.Overflow.DROP_OLDEST, 1000, waits, dropped, droppedItems::add);
+        queue.offer("a");
+        queue.offer("b");
+        queue.offer("c");
+        TestSubscriber subscriber = new TestSubscriber();
+        queue.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertThat(subscriber.items, equalTo(Arrays.asList("b", "c")));
+        verify(dropped).inc();
+        assertThat(droppedItems, equalTo(Collections.singletonList("a")));
+    }
+
+    @Test
+    void testOverflowBlock() throws Exception {
+        EventQueue<String> queue = new EventQueue<>(1, EventQueue.Overflow.BLOCK, 5000, waits, dropped, item -> {});
+        queue.offer("a");
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> queue.offer("b"));
+        Thread.sleep(100);
+        assertThat(blocked.isDone(), equalTo(false));
+
+        TestSubscriber subscriber = new TestSubscriber();
+        queue.subscribe(subscriber);
+        subscriber.subscription.request(1);
+        blocked.get(5, TimeUnit.SECONDS);
+        subscriber.subscription.request(1);
+
+        assertThat(subscriber.items, equalTo(Arrays.asList("a", "b")));
+        verify(waits).update(anyLong(), eq(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    void testOverflowBlockTimeout() {
+        EventQueue<String> queue = new EventQueue<>(1, EventQueue.Overflow.BLOCK, 50, waits, dropped, item -> {});
+        queue.offer("a");
+
+        assertThrows(IllegalStateException.class, () -> queue.offer("b"));
+        verify(dropped).inc();
+    }
+
+    @Test
+    void testConcurrentProducers() throws Exception {
+        EventQueue<String> queue = new EventQueue<>(100, EventQueue.Overflow.BLOCK, 5000, waits, dropped, item -> {});
+        TestSubscriber subscriber = new TestSubscriber();
+        queue.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        int producers = 4;
+        int items = 5000;
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            new Thread(() -> {
+                for (int i = 0; i < items; i++) {
+                    queue.offer("item");
+                }
+                done.countDown();
+            }).start();
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS), equalTo(true));
+        assertThat(subscriber.items.size(), equalTo(producers * items));
+        assertThat(subscriber.overlapping.get(), equalTo(false));
+        verify(dropped, times(0)).inc();
+    }
+
+    private static class TestSubscriber implements Subscriber<String> {
+
+        private final List<String> items = new ArrayList<>();
+
+        private final AtomicBoolean emitting = new AtomicBoolean();
+
+        private final AtomicBoolean overlapping = new AtomicBoolean();
+
+        private Subscription subscription;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(String item) {
+            if (!emitting.compareAndSet(false, true)) {
+                overlapping.set(true);
+            }
+            items.add(item);
+            emitting.set(false);
+        }
+
+        @Override
+        public void onError(Throwable t) {}
+
+        @Override
+        public void onComplete() {}
+    }
+}
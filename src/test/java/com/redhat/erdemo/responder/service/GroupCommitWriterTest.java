@@ -0,0 +1,137 @@
+package com.redhat.erdemo.responder.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceException;
+
+import com.redhat.erdemo.responder.model.Responder;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.apache.commons.lang3.tuple.Triple;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class GroupCommitWriterTest {
+
+    private GroupCommitWriter writer;
+
+    private ResponderService responderService;
+
+    private Histogram groupSize;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void init() {
+        responderService = mock(ResponderService.class);
+        when(responderService.updateRespondersInTransaction(anyList(), anyList())).thenAnswer(invocation -> ((List<Responder>) invocation.getArgument(0))
+                .stream().map(r -> ImmutableTriple.of(true, "updated", r)).collect(Collectors.toList()));
+        OptimisticLockRetry retry = mock(OptimisticLockRetry.class);
+        when(retry.execute(anyString(), any(Supplier.class))).thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+        MetricRegistry metricRegistry = mock(MetricRegistry.class);
+        groupSize = mock(Histogram.class);
+        when(metricRegistry.histogram(any(Metadata.class))).thenReturn(groupSize);
+        writer = new GroupCommitWriter();
+        writer.enabled = true;
+        writer.windowMs = 200;
+        writer.maxSize = 10;
+        writer.timeoutMs = 5000;
+        writer.responderService = responderService;
+        writer.retry = retry;
+        writer.metricRegistry = metricRegistry;
+        writer.init();
+    }
+
+    @AfterEach
+    void shutdown() {
+        writer.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testConcurrentWritesInOneGroup() throws Exception {
+        CompletableFuture<Triple<Boolean, String, Responder>> first = CompletableFuture.supplyAsync(() -> writer.update(responder("1"), Collections.emptyList()));
+        CompletableFuture<Triple<Boolean, String, Responder>> second = CompletableFuture.supplyAsync(() -> writer.update(responder("2"), Collections.emptyList()));
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getMiddle(), equalTo("updated"));
+        assertThat(first.get().getRight().getId(), equalTo("1"));
+        assertThat(second.get(5, TimeUnit.SECONDS).getRight().getId(), equalTo("2"));
+
+        ArgumentCaptor<List<Responder>> captor = ArgumentCaptor.forClass(List.class);
+        verify(responderService).updateRespondersInTransaction(captor.capture(), anyList());
+        assertThat(captor.getValue().size(), equalTo(2));
+        verify(groupSize).update(2);
+    }
+
+    @Test
+    void testWritesForSameResponderInSeparateGroups() throws Exception {
+        CompletableFuture<Triple<Boolean, String, Responder>> first = CompletableFuture.supplyAsync(() -> writer.update(responder("1"), Collections.emptyList()));
+        CompletableFuture<Triple<Boolean, String, Responder>> second = CompletableFuture.supplyAsync(() -> writer.update(responder("1"), Collections.emptyList()));
+
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        verify(responderService, times(2)).updateRespondersInTransaction(anyList(), anyList());
+        verify(groupSize, times(2)).update(1);
+    }
+
+    @Test
+    void testFailedGroupAppliedOneByOne() throws Exception {
+        when(responderService.updateRespondersInTransaction(anyList(), anyList())).thenThrow(new IllegalStateException());
+        when(responderService.updateResponderWithRetry(any(Responder.class), anyList()))
+                .thenAnswer(invocation -> ImmutableTriple.of(true, "updated alone", invocation.getArgument(0)));
+
+        CompletableFuture<Triple<Boolean, String, Responder>> first = CompletableFuture.supplyAsync(() -> writer.update(responder("1"), Collections.emptyList()));
+        CompletableFuture<Triple<Boolean, String, Responder>> second = CompletableFuture.supplyAsync(() -> writer.update(responder("2"), Collections.emptyList()));
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getMiddle(), equalTo("updated alone"));
+        assertThat(second.get(5, TimeUnit.SECONDS).getMiddle(), equalTo("updated alone"));
+        verify(responderService, times(2)).updateResponderWithRetry(any(Responder.class), anyList());
+    }
+
+    @Test
+    void testConflictWhenAppliedAloneFailsTheWrite() throws Exception {
+        when(responderService.updateRespondersInTransaction(anyList(), anyList())).thenThrow(new IllegalStateException());
+        when(responderService.updateResponderWithRetry(any(Responder.class), anyList()))
+                .thenThrow(new PersistenceException(new OptimisticLockException()));
+
+        Triple<Boolean, String, Responder> result = CompletableFuture.supplyAsync(() -> writer.update(responder("1"), Collections.emptyList()))
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(result.getLeft(), equalTo(false));
+        assertThat(result.getRight().getId(), equalTo("1"));
+    }
+
+    @Test
+    void testUpdateFailsWhenNotAppliedWithinTimeout() throws Exception {
+        writer.shutdown();
+        writer.timeoutMs = 50;
+
+        assertThrows(IllegalStateException.class, () -> writer.update(responder("1"), Collections.emptyList()));
+        verify(responderService, never()).updateRespondersInTransaction(anyList(), anyList());
+    }
+
+    private Responder responder(String id) {
+        return new Responder.Builder(id).available(true).build();
+    }
+}
@@ -0,0 +1,126 @@
+package com.redhat.erdemo.responder.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+
+import com.redhat.erdemo.responder.model.Responder;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.eclipse.microprofile.metrics.Counter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LocationThrottleTest {
+
+    private LocationThrottle throttle;
+
+    @BeforeEach
+    void init() {
+        throttle = new LocationThrottle();
+        throttle.minDistance = 10;
+        throttle.minInterval = 5000;
+        throttle.applied = mock(Counter.class);
+        throttle.dropped = mock(Counter.class);
+    }
+
+    // a location let through the throttle and persisted
+    private boolean update(long responderId, double latitude, double longitude, long now) {
+        boolean accepted = throttle.accept(responderId, latitude, longitude, now);
+        if (accepted && !Double.isNaN(latitude)) {
+            throttle.persisted(responderId, latitude, longitude, now);
+        }
+        return accepted;
+    }
+
+    @Test
+    void testLocationNotPersistedIsNoBaseline() {
+        assertThat(throttle.accept(1, 34.17010, -77.94820, 1000), equalTo(true));
+
+        // the first location was not written, so the next one is let through as well
+        assertThat(throttle.accept(1, 34.17011, -77.94820, 2000), equalTo(true));
+    }
+
+    @Test
+    void testPersistedResultIsBaseline() {
+        throttle.enabled = true;
+        throttle.persisted(ImmutableTriple.of(false, "Responder with id + 1 is available.",
+                new Responder.Builder("1").latitude(new BigDecimal("34.17010")).longitude(new BigDecimal("-77.94820")).build()));
+
+        assertThat(throttle.accept(1, 34.17011, -77.94820), equalTo(true));
+
+        throttle.persisted(ImmutableTriple.of(true, "Responder location updated",
+                new Responder.Builder("1").latitude(new BigDecimal("34.17010")).longitude(new BigDecimal("-77.94820")).build()));
+
+        assertThat(throttle.accept(1, 34.17011, -77.94820), equalTo(false));
+    }
+
+    @Test
+    void testClear() {
+        update(1, 34.17010, -77.94820, 1000);
+        throttle.clear();
+
+        assertThat(throttle.accept(1, 34.17011, -77.94820, 2000), equalTo(true));
+    }
+
+    @Test
+    void testFirstLocationIsApplied() {
+        assertThat(update(1, 34.17010, -77.94820, 1000), equalTo(true));
+        verify(throttle.applied).inc();
+    }
+
+    @Test
+    void testSmallMoveWithinIntervalIsDropped() {
+        update(1, 34.17010, -77.94820, 1000);
+
+        // about 1 metre
+        assertThat(update(1, 34.17011, -77.94820, 2000), equalTo(false));
+        verify(throttle.dropped).inc();
+    }
+
+    @Test
+    void testDistanceIsMeasuredFromLastAppliedLocation() {
+        update(1, 34.17010, -77.94820, 1000);
+
+        // about 6.7 metres from the applied location each
+        assertThat(update(1, 34.17016, -77.94820, 1100), equalTo(false));
+        assertThat(update(1, 34.17022, -77.94820, 1200), equalTo(true));
+        assertThat(update(1, 34.17028, -77.94820, 1300), equalTo(false));
+        verify(throttle.applied, times(2)).inc();
+        verify(throttle.dropped, times(2)).inc();
+    }
+
+    @Test
+    void testSmallMoveAfterIntervalIsApplied() {
+        update(1, 34.17010, -77.94820, 1000);
+
+        assertThat(update(1, 34.17010, -77.94820, 6000), equalTo(true));
+    }
+
+    @Test
+    void testRespondersAreThrottledIndependently() {
+        for (long id = 1; id <= 5000; id++) {
+            assertThat(update(id, 34.17010, -77.94820, 1000), equalTo(true));
+        }
+        for (long id = 1; id <= 5000; id++) {
+            assertThat(update(id, 34.17010, -77.94820, 2000), equalTo(false));
+        }
+    }
+
+    @Test
+    void testLocationWithoutCoordinatesIsApplied() {
+        update(1, 34.17010, -77.94820, 1000);
+
+        assertThat(update(1, Double.NaN, Double.NaN, 1100), equalTo(true));
+    }
+
+    @Test
+    void testDistance() {
+        // one degree of latitude
+        assertThat(LocationThrottle.distance(34.0, -77.0, 35.0, -77.0), closeTo(111195, 10));
+    }
+}
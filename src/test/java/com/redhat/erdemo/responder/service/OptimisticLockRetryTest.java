@@ -0,0 +1,101 @@
+package com.redhat.erdemo.responder.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceException;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.Meter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.Tag;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class OptimisticLockRetryTest {
+
+    private OptimisticLockRetry retry;
+
+    private Meter conflicts;
+
+    private Counter retries;
+
+    @BeforeEach
+    void init() {
+        conflicts = mock(Meter.class);
+        retries = mock(Counter.class);
+        MetricRegistry metricRegistry = mock(MetricRegistry.class);
+        when(metricRegistry.meter(any(Metadata.class), any(Tag.class))).thenReturn(conflicts);
+        when(metricRegistry.counter(any(Metadata.class), any(Tag.class))).thenReturn(retries);
+        retry = new OptimisticLockRetry();
+        retry.maxRetries = 2;
+        retry.backoffMs = 1;
+        retry.maxBackoffMs = 4;
+        retry.metricRegistry = metricRegistry;
+    }
+
+    @Test
+    void testRetryUntilSuccess() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retry.execute("test", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new PersistenceException(new OptimisticLockException());
+            }
+            return "done";
+        });
+
+        assertThat(result, equalTo("done"));
+        assertThat(attempts.get(), equalTo(3));
+        verify(conflicts, times(2)).mark();
+        verify(retries, times(2)).inc();
+    }
+
+    @Test
+    void testRetriesExhausted() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(OptimisticLockException.class, () -> retry.execute("test", () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockException();
+        }));
+
+        assertThat(attempts.get(), equalTo(3));
+        verify(conflicts, times(3)).mark();
+    }
+
+    @Test
+    void testNoRetryOnOtherExceptions() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> retry.execute("test", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException();
+        }));
+
+        assertThat(attempts.get(), equalTo(1));
+        verify(conflicts, never()).mark();
+    }
+
+    @Test
+    void testBackoff() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(retry.backoff(0), lessThanOrEqualTo(1L));
+            assertThat(retry.backoff(1), lessThanOrEqualTo(2L));
+            assertThat(retry.backoff(5), lessThanOrEqualTo(4L));
+            assertThat(retry.backoff(5), greaterThanOrEqualTo(0L));
+        }
+    }
+}
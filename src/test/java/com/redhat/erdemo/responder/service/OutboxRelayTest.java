@@ -0,0 +1,70 @@
+package com.redhat.erdemo.responder.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import javax.transaction.UserTransaction;
+
+import com.redhat.erdemo.responder.repository.OutboxRepository;
+import com.redhat.erdemo.responder.repository.ResponderRepositoryTest.TransactionTemplate;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.reactive.messaging.connectors.InMemoryConnector;
+import io.smallrye.reactive.messaging.connectors.InMemorySink;
+import io.smallrye.reactive.messaging.kafka.OutgoingKafkaRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class OutboxRelayTest {
+
+    @Inject
+    OutboxRelay relay;
+
+    @Inject
+    OutboxRepository repository;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction transaction;
+
+    @Inject @Any
+    InMemoryConnector connector;
+
+    @BeforeEach
+    @Transactional
+    void init() {
+        entityManager.createQuery("DELETE FROM OutboxEventEntity").executeUpdate();
+        connector.sink("responder-event").clear();
+    }
+
+    @Test
+    void testRelay() {
+
+        InMemorySink<byte[]> results = connector.sink("responder-event");
+        TransactionTemplate template = new TransactionTemplate(transaction);
+        template.execute(() -> {
+            repository.add("1", "event1");
+            repository.add("2", "event2");
+            repository.add("1", "event3");
+            return null;
+        });
+
+        int sent = relay.relay();
+
+        assertThat(sent, equalTo(3));
+        assertThat(results.received().stream().map(m -> new String(m.getPayload(), StandardCharsets.UTF_8)).collect(Collectors.toList()),
+                equalTo(Arrays.asList("event1", "event2", "event3")));
+        assertThat(((OutgoingKafkaRecord<?, ?>) results.received().get(1)).getKey(), equalTo("2"));
+        assertThat(template.execute(() -> repository.count()), equalTo(0L));
+        assertThat(relay.relay(), equalTo(0));
+    }
+}
@@ -0,0 +1,124 @@
+package com.redhat.erdemo.responder.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import com.redhat.erdemo.responder.repository.ProcessedMessageEntity;
+import com.redhat.erdemo.responder.repository.ProcessedMessageRepository;
+import org.eclipse.microprofile.metrics.Counter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ProcessedMessageCacheTest {
+
+    private ProcessedMessageCache cache;
+
+    @BeforeEach
+    void init() {
+        cache = new ProcessedMessageCache();
+        cache.enabled = true;
+        cache.maxEntries = 3;
+        cache.ttlMs = 60000;
+        cache.repository = mock(ProcessedMessageRepository.class);
+        cache.hits = mock(Counter.class);
+        cache.misses = mock(Counter.class);
+        cache.transactionRegistry = mock(TransactionSynchronizationRegistry.class);
+        when(cache.transactionRegistry.getTransactionStatus()).thenReturn(Status.STATUS_NO_TRANSACTION);
+    }
+
+    @Test
+    void testProcessedMessage() {
+
+        assertThat(cache.isProcessed("message1"), equalTo(false));
+        verify(cache.misses).inc();
+
+        cache.markProcessed(Collections.singletonList("message1"));
+
+        assertThat(cache.isProcessed("message1"), equalTo(true));
+        verify(cache.hits).inc();
+        verify(cache.repository, never()).save(eq("message1"), anyLong());
+    }
+
+    @Test
+    void testProcessedMessageExpires() {
+        cache.ttlMs = 0;
+
+        cache.markProcessed(Collections.singletonList("message1"));
+
+        assertThat(cache.isProcessed("message1"), equalTo(false));
+        assertThat(cache.size(), equalTo(0));
+    }
+
+    @Test
+    void testEldestMessageIsEvicted() {
+
+        cache.markProcessed(Collections.singletonList("message1"));
+        cache.markProcessed(Collections.singletonList("message2"));
+        cache.markProcessed(Collections.singletonList("message3"));
+        cache.markProcessed(Collections.singletonList("message4"));
+
+        assertThat(cache.size(), equalTo(3));
+        assertThat(cache.isProcessed("message1"), equalTo(false));
+        assertThat(cache.isProcessed("message4"), equalTo(true));
+    }
+
+    @Test
+    void testMarkedAfterCommit() {
+        when(cache.transactionRegistry.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+
+        cache.markProcessed(Collections.singletonList("message1"));
+
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(cache.transactionRegistry).registerInterposedSynchronization(synchronization.capture());
+        assertThat(cache.isProcessed("message1"), equalTo(false));
+
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        assertThat(cache.isProcessed("message1"), equalTo(true));
+    }
+
+    @Test
+    void testPersistentCache() {
+        cache.persistent = true;
+
+        cache.markProcessed(Collections.singletonList("message1"));
+        verify(cache.repository).save(eq("message1"), anyLong());
+
+        long now = System.currentTimeMillis();
+        when(cache.repository.processedSince(anyLong(), eq(3))).thenReturn(Arrays.asList(
+                new ProcessedMessageEntity("message3", now - 1000), new ProcessedMessageEntity("message2", now - 2000)));
+
+        cache.load();
+
+        verify(cache.repository).deleteBefore(anyLong());
+        assertThat(cache.size(), equalTo(2));
+        assertThat(cache.isProcessed("message1"), equalTo(false));
+        assertThat(cache.isProcessed("message2"), equalTo(true));
+        assertThat(cache.isProcessed("message3"), equalTo(true));
+    }
+
+    @Test
+    void testPurgeDeletesExpiredIds() {
+        cache.persistent = true;
+
+        long before = System.currentTimeMillis() - cache.ttlMs;
+        cache.purge();
+
+        ArgumentCaptor<Long> cutoff = ArgumentCaptor.forClass(Long.class);
+        verify(cache.repository).deleteBefore(cutoff.capture());
+        assertThat(cutoff.getValue() >= before, equalTo(true));
+        assertThat(cutoff.getValue() <= System.currentTimeMillis() - cache.ttlMs, equalTo(true));
+    }
+}
@@ -6,7 +6,12 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -16,9 +21,16 @@ import static org.mockito.MockitoAnnotations.openMocks;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import javax.inject.Inject;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceException;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
 
 import com.redhat.erdemo.responder.model.Responder;
 import com.redhat.erdemo.responder.model.ResponderStats;
@@ -33,6 +45,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.stubbing.Answer;
 
 @QuarkusTest
@@ -41,12 +54,30 @@ public class ResponderServiceTest {
     @Inject
     ResponderService responderService;
 
+    @Inject
+    TransactionManager transactionManager;
+
     @InjectMock
     ResponderRepository responderRepository;
 
     @InjectMock
     EventPublisher eventPublisher;
 
+    @InjectMock
+    ResponderStatusIndex statusIndex;
+
+    @InjectMock
+    ResponderSpatialIndex spatialIndex;
+
+    @InjectMock
+    ResponderTrackStore trackStore;
+
+    @InjectMock
+    LocationThrottle throttle;
+
+    @InjectMock
+    ProcessedMessageCache processedMessages;
+
     @Captor
     private ArgumentCaptor<ResponderEntity> entityCaptor;
 
@@ -256,6 +287,51 @@ public class ResponderServiceTest {
         verify(responderRepository).availableResponders(10, 0);
     }
 
+    @Test
+    public void testNearestAvailableResponders() {
+
+        ResponderEntity responder1 = new ResponderEntity.Builder(1L, 0L)
+                .name("John Doe")
+                .currentPositionLatitude(new BigDecimal("30.22345"))
+                .currentPositionLongitude(new BigDecimal("-70.98765"))
+                .available(true)
+                .enrolled(true)
+                .build();
+
+        ResponderEntity responder2 = new ResponderEntity.Builder(2L, 0L)
+                .name("John Foo")
+                .currentPositionLatitude(new BigDecimal("30.12345"))
+                .currentPositionLongitude(new BigDecimal("-70.98765"))
+                .available(true)
+                .enrolled(true)
+                .build();
+
+        ResponderEntity responder3 = new ResponderEntity.Builder(3L, 0L)
+                .name("John Bar")
+                .available(true)
+                .enrolled(true)
+                .build();
+
+        when(responderRepository.availableResponders()).thenReturn(Arrays.asList(responder1, responder2, responder3));
+
+        List<Responder> responders = responderService.nearestAvailableResponders(30.12, -70.98, 5);
+        assertThat(responders.size(), equalTo(2));
+        assertThat(responders.get(0).getId(), equalTo("2"));
+        assertThat(responders.get(1).getId(), equalTo("1"));
+    }
+
+    @Test
+    public void testNearestAvailableRespondersWithSpatialIndex() {
+
+        List<Responder> nearest = Arrays.asList(new Responder.Builder("2").build(), new Responder.Builder("1").build());
+        when(spatialIndex.isEnabled()).thenReturn(true);
+        when(spatialIndex.nearest(30.12, -70.98, 2)).thenReturn(nearest);
+
+        List<Responder> responders = responderService.nearestAvailableResponders(30.12, -70.98, 2);
+        assertThat(responders, equalTo(nearest));
+        verify(responderRepository, never()).availableResponders();
+    }
+
     @Test
     public void testAllResponders() {
 
@@ -506,6 +582,7 @@ public class ResponderServiceTest {
         assertThat(created.isPerson(), equalTo(true));
         assertThat(created.isEnrolled(), equalTo(true));
 
+        verify(statusIndex).update(100L, true);
         verify(eventPublisher).responderCreated(100L);
     }
 
@@ -546,6 +623,9 @@ public class ResponderServiceTest {
             return entity;
         });
 
+        EventPublisher.Chunked created = mock(EventPublisher.Chunked.class);
+        when(eventPublisher.respondersCreated(2)).thenReturn(created);
+
         responderService.createResponders(Arrays.asList(toCreate1, toCreate2));
 
         verify(responderRepository, times(2)).create(entityCaptor.capture());
@@ -554,7 +634,10 @@ public class ResponderServiceTest {
         assertThat(responderEntities.get(0).getName(), equalTo("John Doe"));
         assertThat(responderEntities.get(1).getName(), equalTo("John Foo"));
 
-        verify(eventPublisher).respondersCreated(Arrays.asList(1L, 2L));
+        InOrder inOrder = inOrder(created);
+        inOrder.verify(created).add(1L);
+        inOrder.verify(created).add(2L);
+        inOrder.verify(created).complete();
     }
 
     @Test
@@ -622,132 +705,255 @@ public class ResponderServiceTest {
     }
 
     @Test
-    public void testUpdateResponderLocation() {
+    public void testUpdateResponderRetriesOnOptimisticLockConflict() throws Exception {
 
-        Responder updateTo = new Responder.Builder("1")
-                .latitude(new BigDecimal("30.98765")).longitude(new BigDecimal("-70.12345")).build();
+        ResponderEntity updated = new ResponderEntity.Builder(1L, 2L)
+                .name("John Doe")
+                .available(false)
+                .build();
+
+        List<Transaction> transactions = new ArrayList<>();
+        Answer<Triple<Boolean, String, ResponderEntity>> conflict = invocation -> {
+            transactions.add(transactionManager.getTransaction());
+            throw new OptimisticLockException();
+        };
+        Answer<Triple<Boolean, String, ResponderEntity>> success = invocation -> {
+            transactions.add(transactionManager.getTransaction());
+            return ImmutableTriple.of(true, "Responder updated", updated);
+        };
+        when(responderRepository.update(any(ResponderEntity.class))).thenAnswer(conflict).thenAnswer(conflict).thenAnswer(success);
+
+        Triple<Boolean, String, Responder> result = responderService.updateResponder(new Responder.Builder("1").available(false).build());
+
+        assertThat(result.getLeft(), equalTo(true));
+        assertThat(result.getRight().getName(), equalTo("John Doe"));
+        verify(responderRepository, times(3)).update(any(ResponderEntity.class));
+        verify(statusIndex).update(1L, false);
+        // every attempt runs in a new transaction
+        assertThat(transactions.size(), equalTo(3));
+        assertThat(transactions.get(0), notNullValue());
+        assertThat(new HashSet<>(transactions).size(), equalTo(3));
+    }
+
+    @Test
+    public void testUpdateResponderWhenOptimisticLockRetriesExhausted() {
+
+        when(responderRepository.update(any(ResponderEntity.class))).thenThrow(new OptimisticLockException());
+
+        Triple<Boolean, String, Responder> result = responderService.updateResponder(new Responder.Builder("1").available(false).build());
+
+        assertThat(result.getLeft(), equalTo(false));
+        assertThat(result.getMiddle(), equalTo("Exception 'class javax.persistence.OptimisticLockException' when updating Responder"));
+        assertThat(result.getRight().getId(), equalTo("1"));
+        // the first attempt and 3 retries
+        verify(responderRepository, times(4)).update(any(ResponderEntity.class));
+        verify(statusIndex, never()).update(anyLong(), anyBoolean());
+    }
+
+    @Test
+    public void testIndexesNotUpdatedWhenTransactionRollsBack() throws Exception {
 
-        ResponderEntity current = new ResponderEntity.Builder()
+        ResponderEntity updated = new ResponderEntity.Builder(1L, 2L)
                 .name("John Doe")
-                .phoneNumber("111-222-333")
-                .currentPositionLatitude(new BigDecimal("30.12345"))
-                .currentPositionLongitude(new BigDecimal("-70.98765"))
-                .boatCapacity(3)
-                .medicalKit(true)
                 .available(false)
-                .person(true)
-                .enrolled(true)
                 .build();
-        setField(current, "id", 1);
 
-        ResponderEntity updated = new ResponderEntity.Builder()
+        when(responderRepository.update(any(ResponderEntity.class))).thenReturn(ImmutableTriple.of(true, "Responder updated", updated));
+
+        transactionManager.begin();
+        responderService.updateResponder(new Responder.Builder("1").available(false).build());
+        verify(statusIndex, never()).update(anyLong(), anyBoolean());
+        transactionManager.rollback();
+
+        verify(statusIndex, never()).update(anyLong(), anyBoolean());
+        verify(spatialIndex, never()).update(any(Responder.class));
+    }
+
+    @Test
+    public void testUpdateResponderWhenWrappedOptimisticLockRetriesExhausted() {
+
+        when(responderRepository.update(any(ResponderEntity.class))).thenThrow(new PersistenceException(new OptimisticLockException()));
+
+        Triple<Boolean, String, Responder> result = responderService.updateResponder(new Responder.Builder("1").available(false).build());
+
+        assertThat(result.getLeft(), equalTo(false));
+        assertThat(result.getMiddle(), equalTo("Exception 'class javax.persistence.PersistenceException' when updating Responder"));
+        assertThat(result.getRight().getId(), equalTo("1"));
+        verify(responderRepository, times(4)).update(any(ResponderEntity.class));
+    }
+
+    @Test
+    public void testUpdateResponderMarksMessagesProcessedInTransaction() throws Exception {
+
+        ResponderEntity updated = new ResponderEntity.Builder(1L, 2L)
+                .name("John Doe")
+                .available(false)
+                .build();
+
+        when(responderRepository.update(any(ResponderEntity.class))).thenReturn(ImmutableTriple.of(true, "Responder updated", updated));
+        List<Transaction> transactions = new ArrayList<>();
+        doAnswer(invocation -> transactions.add(transactionManager.getTransaction()))
+                .when(processedMessages).markProcessed(Collections.singletonList("message1"));
+
+        responderService.updateResponder(new Responder.Builder("1").available(false).build(), Collections.singletonList("message1"));
+
+        verify(processedMessages).markProcessed(Collections.singletonList("message1"));
+        assertThat(transactions.get(0), notNullValue());
+    }
+
+    @Test
+    public void testUpdateResponders() {
+
+        ResponderEntity updated = new ResponderEntity.Builder(1L, 1L)
                 .name("John Doe")
                 .phoneNumber("111-222-333")
-                .currentPositionLatitude(new BigDecimal("30.98765"))
-                .currentPositionLongitude(new BigDecimal("-70.12345"))
-                .boatCapacity(3)
-                .medicalKit(true)
                 .available(false)
                 .person(true)
                 .enrolled(true)
                 .build();
-        setField(updated, "id", 1);
 
-        when(responderRepository.findById(1L)).thenReturn(current);
-        when(responderRepository.update(any(ResponderEntity.class))).thenReturn(ImmutableTriple.of(true, "success", updated));
+        when(responderRepository.updateAll(any())).thenReturn(Arrays.asList(
+                ImmutableTriple.of(true, "Responder updated", updated),
+                ImmutableTriple.of(false, "Responder with id + 2 not found.", null)));
+
+        List<Triple<Boolean, String, Responder>> results = responderService.updateResponders(Arrays.asList(
+                new Responder.Builder("1").available(false).build(), new Responder.Builder("2").available(false).build()),
+                Arrays.asList("message1", "message2"));
+
+        assertThat(results.size(), equalTo(2));
+        assertThat(results.get(0).getLeft(), equalTo(true));
+        assertThat(results.get(0).getRight().getId(), equalTo("1"));
+        assertThat(results.get(0).getRight().getName(), equalTo("John Doe"));
+        assertThat(results.get(1).getLeft(), equalTo(false));
+        assertThat(results.get(1).getRight(), nullValue());
+        verify(statusIndex).update(1L, false);
+        verify(statusIndex, never()).update(eq(2L), any());
+        verify(processedMessages).markProcessed(Arrays.asList("message1", "message2"));
+    }
+
+    @Test
+    public void testUpdateResponderLocation() {
+
+        Responder updateTo = new Responder.Builder("1")
+                .latitude(new BigDecimal("30.98765")).longitude(new BigDecimal("-70.12345")).build();
+
+        when(responderRepository.updateLocation(1L, new BigDecimal("30.98765"), new BigDecimal("-70.12345"))).thenReturn(true);
 
         Triple<Boolean, String, Responder> result = responderService.updateResponderLocation(updateTo);
         assertThat(result, notNullValue());
         assertThat(result.getLeft(), equalTo(true));
-        assertThat(result.getMiddle(), equalTo("success"));
         assertThat(result.getRight(), notNullValue());
         Responder updatedResponder = result.getRight();
         assertThat(updatedResponder.getId(), equalTo("1"));
-        assertThat(updatedResponder.getName(), equalTo("John Doe"));
-        assertThat(updatedResponder.getPhoneNumber(), equalTo("111-222-333"));
         assertThat(updatedResponder.getLatitude(), equalTo(new BigDecimal("30.98765")));
         assertThat(updatedResponder.getLongitude(), equalTo(new BigDecimal("-70.12345")));
-        assertThat(updatedResponder.getBoatCapacity(), equalTo(3));
-        assertThat(updatedResponder.isMedicalKit(), equalTo(true));
-        assertThat(updatedResponder.isAvailable(), equalTo(false));
-        assertThat(updatedResponder.isPerson(), equalTo(true));
-        assertThat(updatedResponder.isEnrolled(), equalTo(true));
 
-        verify(responderRepository).update(entityCaptor.capture());
-        ResponderEntity entity = entityCaptor.getValue();
-        assertThat(entity, notNullValue());
-        assertThat(entity.getId(), equalTo(1L));
-        assertThat(entity.getName(), nullValue());
-        assertThat(entity.getPhoneNumber(), nullValue());
-        assertThat(entity.getCurrentPositionLatitude(), equalTo(new BigDecimal("30.98765")));
-        assertThat(entity.getCurrentPositionLongitude(), equalTo(new BigDecimal("-70.12345")));
-        assertThat(entity.getBoatCapacity(), nullValue());
-        assertThat(entity.getMedicalKit(), nullValue());
-        assertThat(entity.isAvailable(), nullValue());
-        assertThat(entity.isPerson(), nullValue());
-        assertThat(entity.isEnrolled(), nullValue());
+        verify(responderRepository).updateLocation(1L, new BigDecimal("30.98765"), new BigDecimal("-70.12345"));
+        verify(responderRepository, never()).findById(any(Long.class));
+        verify(responderRepository, never()).update(any(ResponderEntity.class));
     }
 
     @Test
-    public void testUpdateResponderLocationWhenAvailable() {
+    public void testUpdateResponderLocationWhenAvailableOrNotFound() {
 
         Responder updateTo = new Responder.Builder("1")
                 .latitude(new BigDecimal("30.98765")).longitude(new BigDecimal("-70.12345")).build();
 
-        ResponderEntity current = new ResponderEntity.Builder()
-                .name("John Doe")
-                .phoneNumber("111-222-333")
-                .currentPositionLatitude(new BigDecimal("30.12345"))
-                .currentPositionLongitude(new BigDecimal("-70.98765"))
-                .boatCapacity(3)
-                .medicalKit(true)
-                .available(true)
-                .person(true)
-                .enrolled(true)
-                .build();
-        setField(current, "id", 1);
-
-        when(responderRepository.findById(1L)).thenReturn(current);
+        when(responderRepository.updateLocation(1L, new BigDecimal("30.98765"), new BigDecimal("-70.12345"))).thenReturn(false);
 
         Triple<Boolean, String, Responder> result = responderService.updateResponderLocation(updateTo);
         assertThat(result, notNullValue());
         assertThat(result.getLeft(), equalTo(false));
-        assertThat(result.getRight(), notNullValue());
-        Responder updatedResponder = result.getRight();
-        assertThat(updatedResponder.getId(), equalTo("1"));
-        assertThat(updatedResponder.getName(), equalTo("John Doe"));
-        assertThat(updatedResponder.getPhoneNumber(), equalTo("111-222-333"));
-        assertThat(updatedResponder.getLatitude(), equalTo(new BigDecimal("30.12345")));
-        assertThat(updatedResponder.getLongitude(), equalTo(new BigDecimal("-70.98765")));
-        assertThat(updatedResponder.getBoatCapacity(), equalTo(3));
-        assertThat(updatedResponder.isMedicalKit(), equalTo(true));
-        assertThat(updatedResponder.isAvailable(), equalTo(true));
-        assertThat(updatedResponder.isPerson(), equalTo(true));
-        assertThat(updatedResponder.isEnrolled(), equalTo(true));
+        assertThat(result.getRight(), nullValue());
 
+        verify(responderRepository).updateLocation(1L, new BigDecimal("30.98765"), new BigDecimal("-70.12345"));
         verify(responderRepository, never()).update(any(ResponderEntity.class));
     }
 
     @Test
-    public void testUpdateResponderLocationWhenNotFound() {
+    public void testUpdateResponderLocationWhenLocationNotSet() {
+
+        Responder updateTo = new Responder.Builder("1").latitude(new BigDecimal("30.98765")).build();
+
+        Triple<Boolean, String, Responder> result = responderService.updateResponderLocation(updateTo);
+        assertThat(result, notNullValue());
+        assertThat(result.getLeft(), equalTo(false));
+
+        verify(responderRepository, never()).updateLocation(any(Long.class), any(BigDecimal.class), any(BigDecimal.class));
+    }
+
+    @Test
+    public void testUpdateResponderLocationWithStatusIndex() {
 
         Responder updateTo = new Responder.Builder("1")
                 .latitude(new BigDecimal("30.98765")).longitude(new BigDecimal("-70.12345")).build();
 
-        when(responderRepository.findById(1L)).thenReturn(null);
+        when(statusIndex.isEnabled()).thenReturn(true);
+        when(statusIndex.isAvailable(1L)).thenReturn(false);
+        when(responderRepository.updateLocation(1L, new BigDecimal("30.98765"), new BigDecimal("-70.12345"))).thenReturn(true);
+
+        Triple<Boolean, String, Responder> result = responderService.updateResponderLocation(updateTo);
+        assertThat(result, notNullValue());
+        assertThat(result.getLeft(), equalTo(true));
+        assertThat(result.getRight().getLatitude(), equalTo(new BigDecimal("30.98765")));
+
+        verify(responderRepository).updateLocation(1L, new BigDecimal("30.98765"), new BigDecimal("-70.12345"));
+    }
+
+    @Test
+    public void testUpdateResponderLocationWithStatusIndexWhenAvailable() {
+
+        Responder updateTo = new Responder.Builder("1")
+                .latitude(new BigDecimal("30.98765")).longitude(new BigDecimal("-70.12345")).build();
+
+        when(statusIndex.isEnabled()).thenReturn(true);
+        when(statusIndex.isAvailable(1L)).thenReturn(true);
+
+        Triple<Boolean, String, Responder> result = responderService.updateResponderLocation(updateTo);
+        assertThat(result, notNullValue());
+        assertThat(result.getLeft(), equalTo(false));
+
+        verify(responderRepository, never()).updateLocation(any(Long.class), any(BigDecimal.class), any(BigDecimal.class));
+    }
+
+    @Test
+    public void testUpdateResponderLocationWithStatusIndexWhenNotKnown() {
+
+        Responder updateTo = new Responder.Builder("1")
+                .latitude(new BigDecimal("30.98765")).longitude(new BigDecimal("-70.12345")).build();
+
+        when(statusIndex.isEnabled()).thenReturn(true);
+        when(statusIndex.isAvailable(1L)).thenReturn(null);
 
         Triple<Boolean, String, Responder> result = responderService.updateResponderLocation(updateTo);
         assertThat(result, notNullValue());
         assertThat(result.getLeft(), equalTo(false));
         assertThat(result.getRight(), nullValue());
 
-        verify(responderRepository, never()).update(any(ResponderEntity.class));
+        verify(responderRepository, never()).updateLocation(any(Long.class), any(BigDecimal.class), any(BigDecimal.class));
     }
 
     @Test
     public void testReset() {
         responderService.reset();
         verify(responderRepository).reset();
+        verify(statusIndex).reload();
+        verify(trackStore).clear();
+        verify(throttle).clear();
+    }
+
+    @Test
+    public void testResetNotReloadedWhenTransactionRollsBack() throws Exception {
+
+        transactionManager.begin();
+        responderService.reset();
+        transactionManager.rollback();
+
+        verify(responderRepository).reset();
+        verify(statusIndex, never()).reload();
+        verify(spatialIndex, never()).reload();
+        verify(trackStore, never()).clear();
+        verify(throttle, never()).clear();
     }
 
     @Test
@@ -784,6 +990,8 @@ public class ResponderServiceTest {
         responderService.clear(false);
         verify(responderRepository).nonPersonResponders();
         verify(responderRepository).clear();
+        verify(trackStore).clear();
+        verify(throttle).clear();
         verify(eventPublisher).respondersDeleted(Arrays.asList(1L, 2L));
     }
 
@@ -829,6 +1037,7 @@ public class ResponderServiceTest {
 
         responderService.deleteAll();
         verify(responderRepository).deleteAll();
+        verify(trackStore).clear();
     }
 
     private void setField(Object targetObject, String name, Object value) {
@@ -0,0 +1,123 @@
+package com.redhat.erdemo.responder.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import com.redhat.erdemo.responder.model.Responder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ResponderSpatialIndexTest {
+
+    private ResponderSpatialIndex index;
+
+    @BeforeEach
+    void init() {
+        index = new ResponderSpatialIndex();
+        index.enabled = true;
+        index.cellSize = 0.01;
+    }
+
+    @Test
+    void testNearest() {
+
+        index.update(responder("1", "34.2000", "-77.9000", true, true));
+        index.update(responder("2", "34.2100", "-77.9000", true, true));
+        index.update(responder("3", "34.3000", "-77.9000", true, true));
+        index.update(responder("4", "34.2010", "-77.9010", true, true));
+
+        List<Responder> nearest = index.nearest(34.2001, -77.9001, 2);
+
+        assertThat(nearest.size(), equalTo(2));
+        assertThat(nearest.get(0).getId(), equalTo("1"));
+        assertThat(nearest.get(1).getId(), equalTo("4"));
+    }
+
+    @Test
+    void testNearestOnlyIncludesAvailableAndEnrolledResponders() {
+
+        index.update(responder("1", "34.2000", "-77.9000", true, true));
+        index.update(responder("2", "34.2001", "-77.9001", false, true));
+        index.update(responder("3", "34.2001", "-77.9001", true, false));
+        index.update(new Responder.Builder("4").available(true).enrolled(true).build());
+
+        List<Responder> nearest = index.nearest(34.2001, -77.9001, 5);
+
+        assertThat(nearest.size(), equalTo(1));
+        assertThat(nearest.get(0).getId(), equalTo("1"));
+    }
+
+    @Test
+    void testUpdateMovesAndRemovesResponder() {
+
+        index.update(responder("1", "34.2000", "-77.9000", true, true));
+        index.update(responder("1", "35.2000", "-78.9000", true, true));
+
+        assertThat(index.size(), equalTo(1));
+        assertThat(index.nearest(35.2, -78.9, 1).get(0).getLatitude(), equalTo(new BigDecimal("35.2000")));
+
+        index.update(responder("1", "35.2000", "-78.9000", false, true));
+
+        assertThat(index.size(), equalTo(0));
+        assertThat(index.nearest(35.2, -78.9, 1).isEmpty(), equalTo(true));
+    }
+
+    @Test
+    void testNearestMatchesFullScan() {
+
+        Random random = new Random(42);
+        List<Responder> responders = new ArrayList<>();
+        for (int i = 1; i <= 10000; i++) {
+            Responder responder = responder(Integer.toString(i), Double.toString(34 + random.nextDouble()),
+                    Double.toString(-78 + random.nextDouble()), true, true);
+            responders.add(responder);
+            index.update(responder);
+        }
+
+        for (int i = 0; i < 20; i++) {
+            double lat = 33.8 + random.nextDouble() * 1.4;
+            double lon = -78.2 + random.nextDouble() * 1.4;
+            double cosLat = Math.cos(Math.toRadians(lat));
+
+            List<String> expected = responders.stream()
+                    .sorted(Comparator.comparingDouble(r -> ResponderSpatialIndex.distance(lat, lon,
+                            r.getLatitude().doubleValue(), r.getLongitude().doubleValue(), cosLat)))
+                    .limit(10).map(Responder::getId).collect(Collectors.toList());
+
+            List<String> nearest = index.nearest(lat, lon, 10).stream().map(Responder::getId).collect(Collectors.toList());
+
+            assertThat(nearest, equalTo(expected));
+        }
+    }
+
+    @Test
+    void testNearestFarFromResponders() {
+
+        index.update(responder("1", "34.2000", "-77.9000", true, true));
+        index.update(responder("2", "34.2100", "-77.9000", true, true));
+        index.update(responder("3", "-30.0000", "70.0000", true, true));
+
+        List<Responder> nearest = index.nearest(0, 0, 5);
+
+        assertThat(nearest.size(), equalTo(3));
+        assertThat(nearest.get(0).getId(), equalTo("3"));
+        assertThat(nearest.get(1).getId(), equalTo("1"));
+        assertThat(nearest.get(2).getId(), equalTo("2"));
+    }
+
+    private Responder responder(String id, String lat, String lon, boolean available, boolean enrolled) {
+        return new Responder.Builder(id)
+                .latitude(new BigDecimal(lat))
+                .longitude(new BigDecimal(lon))
+                .available(available)
+                .enrolled(enrolled)
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.redhat.erdemo.responder.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import com.redhat.erdemo.responder.model.TrackPoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ResponderTrackStoreTest {
+
+    private ResponderTrackStore store;
+
+    @BeforeEach
+    void init() {
+        store = new ResponderTrackStore();
+        store.enabled = true;
+        store.samples = 3;
+        store.maxResponders = 2;
+    }
+
+    @Test
+    void testTrackKeepsLastSamplesOldestFirst() {
+
+        store.record(1L, 30.1, -70.1, 1000L);
+        store.record(1L, 30.2, -70.2, 2000L);
+
+        List<TrackPoint> track = store.track(1L);
+        assertThat(track.size(), equalTo(2));
+        assertThat(track.get(0), equalTo(new TrackPoint(new BigDecimal("30.1"), new BigDecimal("-70.1"), 1000L)));
+        assertThat(track.get(1), equalTo(new TrackPoint(new BigDecimal("30.2"), new BigDecimal("-70.2"), 2000L)));
+
+        store.record(1L, 30.3, -70.3, 3000L);
+        store.record(1L, 30.4, -70.4, 4000L);
+
+        track = store.track(1L);
+        assertThat(track.size(), equalTo(3));
+        assertThat(track.get(0).getTimestamp(), equalTo(2000L));
+        assertThat(track.get(1).getTimestamp(), equalTo(3000L));
+        assertThat(track.get(2).getTimestamp(), equalTo(4000L));
+        assertThat(track.get(2).getLatitude(), equalTo(new BigDecimal("30.4")));
+    }
+
+    @Test
+    void testTrackWhenResponderNotTracked() {
+        assertThat(store.track(1L), nullValue());
+    }
+
+    @Test
+    void testMaxRespondersEvictsLeastRecentlyUpdated() {
+
+        store.record(1L, 30.1, -70.1, 1000L);
+        store.record(2L, 30.1, -70.1, 1000L);
+        store.record(1L, 30.2, -70.2, 2000L);
+        store.record(3L, 30.1, -70.1, 3000L);
+
+        assertThat(store.track(1L).size(), equalTo(2));
+        assertThat(store.track(2L), nullValue());
+        assertThat(store.track(3L).size(), equalTo(1));
+    }
+
+    @Test
+    void testClear() {
+
+        store.record(1L, 30.1, -70.1, 1000L);
+        store.clear();
+
+        assertThat(store.track(1L), nullValue());
+    }
+
+    @Test
+    void testNothingRecordedWhenDisabled() {
+        store.enabled = false;
+
+        store.record(1L, 30.1, -70.1, 1000L);
+
+        assertThat(store.track(1L), nullValue());
+    }
+}